@@ -0,0 +1,77 @@
+package application;
+
+// One completed depth of Engine.analyze: every column's score at that depth, from the point of
+// view of the side to move, and the principal variation from the best column on. Immutable, so
+// it can be handed to another thread as it is.
+public final class Analysis
+{
+    // The score of a column that cannot be played
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    private final int depth;
+    private final int[] scores;
+    private final int[] principalVariation;
+    private final long nodes;
+    private final long nanos;
+
+    Analysis(int depth, int[] scores, int[] principalVariation, long nodes, long nanos)
+    {
+        this.depth = depth;
+        this.scores = scores.clone();
+        this.principalVariation = principalVariation.clone();
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    // Counted as in SearchStats.depthReached: depth 0 scores the positions one move ahead
+    public int depth()
+    {
+        return depth;
+    }
+
+    public int columns()
+    {
+        return scores.length;
+    }
+
+    // NO_SCORE for a full column
+    public int score(int col)
+    {
+        return scores[col];
+    }
+
+    // The best column, the lowest one on ties as in the engine's own search, or -1 if none
+    // can be played
+    public int bestColumn()
+    {
+        return bestColumn(scores);
+    }
+
+    static int bestColumn(int[] scores)
+    {
+        int best = -1;
+
+        for (int col = 0; col < scores.length; col++)
+            if (scores[col] != NO_SCORE && (best == -1 || scores[col] > scores[best]))
+                best = col;
+
+        return best;
+    }
+
+    // Columns from the best one on, as far as the transposition table still holds them
+    public int[] principalVariation()
+    {
+        return principalVariation.clone();
+    }
+
+    // Nodes searched and nanoseconds spent since the analysis of this position started
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    public long nanos()
+    {
+        return nanos;
+    }
+}
@@ -0,0 +1,113 @@
+package application;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+// Runs Engine.analyze on a background thread and shows its results on the JavaFX application
+// thread while the search deepens.
+//
+// The search thread never waits for the display. It leaves each result in a single slot,
+// replacing the previous one if that was not shown yet, and queues a call to show the slot
+// only when none is queued already. However fast the depths complete, the FX thread has at
+// most one update waiting and always shows the newest.
+//
+// Each analyze() call starts a new generation and cancels the running search. Results are
+// tagged with the generation they belong to, and the FX thread drops those of an older one, so
+// a result for a position that has since changed is never shown.
+public class Analyzer
+{
+    private final Engine engine;
+    private final Executor callbacks;
+    private final Consumer<Analysis> display;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread thread = new Thread(r, "connect4-analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The newest result not yet shown, or null when the display is up to date
+    private final AtomicReference<Update> pending = new AtomicReference<>();
+
+    private volatile int generation;
+    private volatile boolean closed;
+
+    public Analyzer(Engine engine, Consumer<Analysis> display)
+    {
+        this(engine, Platform::runLater, display);
+    }
+
+    // Shows the results through the given executor instead of the FX thread, for use without JavaFX
+    public Analyzer(Engine engine, Executor callbacks, Consumer<Analysis> display)
+    {
+        this.engine = engine;
+        this.callbacks = callbacks;
+        this.display = display;
+    }
+
+    // Starts analyzing a snapshot of the position, dropping the analysis of any earlier one.
+    // Call it from the thread the results are shown on.
+    public void analyze(Position position)
+    {
+        Position snapshot = new Position(position);
+        int current = ++generation;
+
+        engine.cancel();
+        executor.execute(() -> run(snapshot, current));
+    }
+
+    // Stops the running analysis; nothing more is shown until the next analyze()
+    public void stop()
+    {
+        generation++;
+        engine.cancel();
+    }
+
+    public void shutdown()
+    {
+        closed = true;
+        stop();
+        executor.shutdownNow();
+        engine.shutdown();
+    }
+
+    private void run(Position position, int current)
+    {
+        engine.resume();
+
+        // Superseded while queued. Otherwise any later analyze() bumps the generation after
+        // this check and cancels after the resume, so the cancel holds.
+        if (current != generation)
+            return;
+
+        engine.analyze(position, analysis ->
+        {
+            if (pending.getAndSet(new Update(current, analysis)) == null)
+                callbacks.execute(this::show);
+        });
+    }
+
+    private void show()
+    {
+        Update update = pending.getAndSet(null);
+
+        if (update != null && !closed && update.generation == generation)
+            display.accept(update.analysis);
+    }
+
+    private static final class Update
+    {
+        final int generation;
+        final Analysis analysis;
+
+        Update(int generation, Analysis analysis)
+        {
+            this.generation = generation;
+            this.analysis = analysis;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Scores positions in bulk from the command line. Input has one position per line as 1-based
+// column digits, or on boards with more than nine columns column numbers separated by spaces,
+// as Position.fromMoves reads them; blank lines and lines starting with # are skipped. For
+// every position one line goes to standard output, in input order:
+//   <moves> TAB <best column, 1-based> TAB <score> TAB <exact|heuristic>
+// or <moves> TAB error: <reason> for a line that is not a legal position. Positions without a
+// legal move get "-" as their column.
+//
+// Each worker thread searches with its own Engine.fromProperties(), so the -Dconnect4.*
+// options of the AI window apply. That includes depth, table size, solver and book. Input is
+// streamed: at most QUEUED_PER_THREAD positions per thread are in memory at once, so inputs of
+// any size work. Throughput goes to standard error.
+//
+// Every position starts with a cleared transposition table, so its line does not depend on the
+// input order or on which thread searched it. -Dconnect4.batch.warm=true keeps each thread's
+// table from one position to the next instead: faster on related positions, but a heuristic
+// score may then differ from run to run.
+//
+// A failure other than a bad input line, such as an engine that cannot be set up or output that
+// cannot be written, stops the run: no more lines are read, and main rethrows it once the
+// workers have stopped. Every engine is shut down at the end, which flushes a result cache.
+//
+// Usage: BatchAnalyzer [file, or - for standard input] [threads]
+public class BatchAnalyzer
+{
+    private static final int QUEUED_PER_THREAD = 64;
+    private static final long PROGRESS_NANOS = 10_000_000_000L;
+    private static final boolean WARM = Boolean.getBoolean("connect4.batch.warm");
+
+    public static void main(String[] args) throws Exception
+    {
+        String input = args.length > 0 ? args[0] : "-";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Variant variant = Variant.fromProperties();
+
+        BufferedReader reader = input.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII))
+                : Files.newBufferedReader(Path.of(input), StandardCharsets.US_ASCII);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+
+        // Results in input order; its capacity bounds the positions in flight
+        BlockingQueue<CompletableFuture<String>> results = new ArrayBlockingQueue<>(QUEUED_PER_THREAD * threads);
+        CompletableFuture<String> end = CompletableFuture.completedFuture(null);
+
+        // Kept to shut down at the end
+        List<Engine> created = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<Engine> engines = ThreadLocal.withInitial(() ->
+        {
+            Engine engine = Engine.fromProperties();
+            created.add(engine);
+            return engine;
+        });
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r ->
+        {
+            Thread thread = new Thread(r, "connect4-analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long[] written = new long[1];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread output = new Thread(() ->
+        {
+            try
+            {
+                long lastReport = start;
+
+                while (true)
+                {
+                    CompletableFuture<String> result = results.poll();
+
+                    // Nothing ready to write: flush what there is, then wait
+                    if (result == null)
+                    {
+                        writer.flush();
+                        result = results.take();
+                    }
+
+                    if (result == end)
+                        break;
+
+                    writer.write(result.join());
+                    written[0]++;
+
+                    if (System.nanoTime() - lastReport > PROGRESS_NANOS)
+                    {
+                        lastReport = System.nanoTime();
+                        report(written[0], lastReport - start);
+                    }
+                }
+
+                writer.flush();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (CompletionException e)
+            {
+                // From join(), for an analysis that failed
+                failure.set(e.getCause());
+            }
+            catch (IOException | RuntimeException e)
+            {
+                failure.set(e);
+            }
+        }, "connect4-analyzer-output");
+
+        // Not to keep the JVM alive if reading the input fails
+        output.setDaemon(true);
+        output.start();
+
+        try (reader)
+        {
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                String moves = line.trim();
+
+                if (moves.isEmpty() || moves.startsWith("#"))
+                    continue;
+
+                CompletableFuture<String> result = new CompletableFuture<>();
+
+                if (!put(results, result, output))
+                    break;
+
+                workers.execute(() ->
+                {
+                    try
+                    {
+                        result.complete(analyze(engines.get(), variant, moves));
+                    }
+                    catch (RuntimeException | Error e)
+                    {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+        }
+
+        put(results, end, output);
+        output.join();
+
+        if (failure.get() != null)
+        {
+            workers.shutdownNow();
+            created.forEach(Engine::cancel);
+        }
+        else
+            workers.shutdown();
+
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        created.forEach(Engine::shutdown);
+
+        Throwable cause = failure.get();
+
+        if (cause instanceof IOException)
+            throw new UncheckedIOException("Cannot write the results", (IOException) cause);
+
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+
+        if (cause instanceof Error)
+            throw (Error) cause;
+
+        report(written[0], System.nanoTime() - start);
+    }
+
+    // Queues the result for the output thread; false, without queueing it, if that has stopped
+    // and will take no more
+    private static boolean put(BlockingQueue<CompletableFuture<String>> results, CompletableFuture<String> result,
+            Thread output) throws InterruptedException
+    {
+        while (!results.offer(result, 100, TimeUnit.MILLISECONDS))
+            if (!output.isAlive())
+                return false;
+
+        return output.isAlive();
+    }
+
+    private static String analyze(Engine engine, Variant variant, String moves)
+    {
+        Position position;
+
+        try
+        {
+            position = Position.fromMoves(variant, moves);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return moves + "\terror: " + e.getMessage() + "\n";
+        }
+
+        if (!WARM)
+            engine.newGame();
+
+        int col = engine.aiMove(position);
+
+        return moves + "\t" + (col == -1 ? "-" : String.valueOf(col + 1)) + "\t" + engine.score() + "\t"
+                + (engine.solved() ? "exact" : "heuristic") + "\n";
+    }
+
+    private static void report(long positions, long nanos)
+    {
+        System.err.printf("%,d positions in %.1f s, %,.0f positions/s%n", positions, nanos / 1e9, positions / (nanos / 1e9));
+    }
+}
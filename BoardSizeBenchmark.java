@@ -0,0 +1,90 @@
+package application;
+
+import java.util.Random;
+
+// Search speed on boards of different sizes and connect lengths: every variant searches the
+// same number of random positions to a fixed depth with a cleared table, and the nodes/s show
+// what the larger line tables and multi-word boards cost per node.
+// Usage: BoardSizeBenchmark [depth] [positions] [table MB]
+public class BoardSizeBenchmark
+{
+    private static final Variant[] VARIANTS =
+    {
+        Variant.STANDARD,
+        new Variant(7, 8, 4),
+        new Variant(7, 9, 4),
+        new Variant(10, 10, 4),
+        new Variant(10, 10, 5),
+        new Variant(15, 15, 5),
+    };
+
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        System.out.printf("depth %d, %d positions, %d MB table%n", depth, count, megabytes);
+        System.out.printf("%-16s %7s %7s %12s %14s %12s%n", "board", "words", "windows", "ms/move", "nodes/move", "nodes/s");
+
+        Engine engine = new Engine(depth, true, new TranspositionTable(megabytes));
+
+        // Warm up the JIT on every variant before the timed runs
+        for (Variant variant : VARIANTS)
+            run(engine, positions(variant, count));
+
+        for (Variant variant : VARIANTS)
+        {
+            long[] result = run(engine, positions(variant, count));
+
+            System.out.printf("%-16s %7d %7d %12.2f %,14d %,12.0f%n", variant, variant.words, variant.windowCount,
+                    result[0] / 1e6 / count, result[1] / count, result[1] / (result[0] / 1e9));
+        }
+    }
+
+    // Returns total nanoseconds and total nodes over all positions, each searched with a cleared table
+    private static long[] run(Engine engine, Position[] positions)
+    {
+        long time = 0, nodes = 0;
+
+        for (Position position : positions)
+        {
+            engine.table().clear();
+
+            long start = System.nanoTime();
+            engine.aiMove(new Position(position));
+            time += System.nanoTime() - start;
+            nodes += engine.nodes();
+        }
+
+        return new long[] { time, nodes };
+    }
+
+    // Random positions filling up to a third of the board in which nobody has won yet, the same
+    // for every run
+    private static Position[] positions(Variant variant, int count)
+    {
+        Random random = new Random(13);
+        Position[] positions = new Position[count];
+
+        for (int i = 0; i < count; i++)
+            while (positions[i] == null)
+            {
+                Position position = new Position(variant);
+                int plies = random.nextInt(variant.cells() / 3);
+
+                while (position.moves() < plies)
+                {
+                    int col = random.nextInt(variant.columns());
+
+                    if (position.canPlay(col))
+                        position.play(col);
+                }
+
+                if (!position.isWin(0) && !position.isWin(1))
+                    positions[i] = position;
+            }
+
+        return positions;
+    }
+}
@@ -0,0 +1,226 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+// Draws the board on one Canvas instead of a node per cell. Only cells marked dirty are
+// repainted, on the next animation pulse. An AnimationTimer runs while there is something to
+// paint and stops when the board is idle. A dropped disc falls down its column under constant
+// acceleration and settles into its cell when it lands. Resizing the view scales the board to
+// fit and repaints it once.
+//
+// The view only shows the game; the frontends keep the game itself in a Position. Every method
+// must be called on the JavaFX application thread.
+public class BoardView extends Region
+{
+    private static final Color BACKGROUND = Color.BLACK;
+    private static final Color EMPTY = Color.WHITE;
+
+    // In cells per second squared: a fall through six rows takes about a third of a second
+    private static final double GRAVITY = 100;
+
+    private final int rows;
+    private final int columns;
+    private final Canvas canvas = new Canvas();
+
+    // Settled colors, row 0 at the top, and the cells to repaint on the next pulse
+    private final Color[][] cells;
+    private final boolean[][] dirty;
+    private final List<Drop> drops = new ArrayList<>();
+
+    private double cellSize;
+    private double originX;
+    private double originY;
+    private boolean repaintAll = true;
+    private boolean anyDirty;
+    private boolean running;
+
+    private final AnimationTimer timer = new AnimationTimer()
+    {
+        @Override
+        public void handle(long now)
+        {
+            paint(now);
+        }
+    };
+
+    public BoardView(Variant variant, double cellSize)
+    {
+        rows = variant.rows();
+        columns = variant.columns();
+        cells = new Color[rows][columns];
+        dirty = new boolean[rows][columns];
+
+        for (Color[] row : cells)
+            Arrays.fill(row, EMPTY);
+
+        getChildren().add(canvas);
+        setPrefSize(columns * cellSize, rows * cellSize);
+        setMinSize(columns * 10, rows * 10);
+    }
+
+    // Calls onClick with the column under a mouse click on the board
+    public void setOnColumnClicked(IntConsumer onClick)
+    {
+        setOnMouseClicked(e ->
+        {
+            int col = (int) Math.floor((e.getX() - originX) / cellSize);
+
+            if (col >= 0 && col < columns && e.getY() >= originY && e.getY() < originY + rows * cellSize)
+                onClick.accept(col);
+        });
+    }
+
+    // Drops a disc down the column into the row, counted from the top. onLanded, which may be
+    // null, runs once the disc has settled.
+    public void drop(int col, int row, Color color, Runnable onLanded)
+    {
+        drops.add(new Drop(col, row, color, onLanded));
+        start();
+    }
+
+    @Override
+    protected void layoutChildren()
+    {
+        double width = getWidth();
+        double height = getHeight();
+
+        if (width == canvas.getWidth() && height == canvas.getHeight())
+            return;
+
+        canvas.setWidth(width);
+        canvas.setHeight(height);
+
+        cellSize = Math.min(width / columns, height / rows);
+        originX = (width - columns * cellSize) / 2;
+        originY = (height - rows * cellSize) / 2;
+        repaintAll = true;
+        start();
+    }
+
+    private void start()
+    {
+        if (!running)
+        {
+            running = true;
+            timer.start();
+        }
+    }
+
+    private void paint(long now)
+    {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+
+        if (repaintAll)
+        {
+            g.setFill(BACKGROUND);
+            g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+            for (int row = 0; row < rows; row++)
+                for (int col = 0; col < columns; col++)
+                    paintCell(g, row, col);
+
+            repaintAll = false;
+        }
+
+        // Move the falling discs, marking the cells they leave and enter
+        for (int i = 0; i < drops.size(); i++)
+        {
+            Drop drop = drops.get(i);
+
+            if (drop.startNanos == 0)
+                drop.startNanos = now;
+
+            markRows(drop.col, drop.y);
+
+            double seconds = (now - drop.startNanos) / 1e9;
+            drop.y = Math.min(drop.row, GRAVITY * seconds * seconds / 2);
+
+            if (drop.y == drop.row)
+            {
+                cells[drop.row][drop.col] = drop.color;
+                markRows(drop.col, drop.y);
+                drops.remove(i--);
+
+                // Later, as dialogs cannot wait during an animation pulse
+                if (drop.onLanded != null)
+                    Platform.runLater(drop.onLanded);
+            }
+            else
+                markRows(drop.col, drop.y);
+        }
+
+        if (anyDirty)
+        {
+            for (int row = 0; row < rows; row++)
+                for (int col = 0; col < columns; col++)
+                    if (dirty[row][col])
+                        paintCell(g, row, col);
+
+            anyDirty = false;
+        }
+
+        // Falling discs go over the settled cells
+        for (Drop drop : drops)
+            paintDisc(g, drop.col, drop.y, drop.color);
+
+        if (drops.isEmpty())
+        {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    // Marks the one or two rows a disc at the fractional row y overlaps
+    private void markRows(int col, double y)
+    {
+        int top = (int) Math.floor(y);
+
+        for (int row = top; row <= Math.min(rows - 1, (int) Math.ceil(y)); row++)
+        {
+            dirty[row][col] = true;
+            anyDirty = true;
+        }
+    }
+
+    private void paintCell(GraphicsContext g, int row, int col)
+    {
+        g.setFill(BACKGROUND);
+        g.fillRect(originX + col * cellSize, originY + row * cellSize, cellSize, cellSize);
+        paintDisc(g, col, row, cells[row][col]);
+        dirty[row][col] = false;
+    }
+
+    private void paintDisc(GraphicsContext g, int col, double y, Color color)
+    {
+        g.setFill(color);
+        g.fillOval(originX + col * cellSize, originY + y * cellSize, cellSize, cellSize);
+    }
+
+    private static final class Drop
+    {
+        final int col;
+        final int row;
+        final Color color;
+        final Runnable onLanded;
+
+        long startNanos;
+        double y;
+
+        Drop(int col, int row, Color color, Runnable onLanded)
+        {
+            this.col = col;
+            this.row = row;
+            this.color = color;
+            this.onLanded = onLanded;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Builds an opening book offline: every position with at most the given number of stones is
+// searched to a fixed depth and its best column and score written to a sorted book file. A
+// position and its mirror image are searched and stored once.
+// Books cover the standard board only.
+// Usage: BookGenerator <file> [plies] [depth] [table MB]
+public class BookGenerator
+{
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: BookGenerator <file> [plies] [depth] [table MB]");
+            System.exit(1);
+        }
+
+        Path path = Path.of(args[0]);
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 14;
+        int megabytes = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+
+        List<Position> positions = new ArrayList<>();
+        collect(new Position(), plies, new HashSet<>(), positions);
+
+        int count = positions.size();
+        System.out.printf("%,d positions with up to %d stones, searching to depth %d%n", count, plies, depth);
+
+        Engine engine = new Engine(depth, true, new TranspositionTable(megabytes));
+        long[] keys = new long[count];
+        int[] moves = new int[count];
+        int[] scores = new int[count];
+        long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++)
+        {
+            Position position = positions.get(i);
+
+            // Collected positions are canonical, so their moves need no mirroring
+            keys[i] = position.canonicalKey();
+            moves[i] = engine.aiMove(position);
+            scores[i] = engine.score();
+
+            if ((i + 1) % 1000 == 0)
+                System.out.printf("%,d / %,d (%.0f s)%n", i + 1, count, (System.nanoTime() - start) / 1e9);
+        }
+
+        OpeningBook.write(path, plies, keys, moves, scores);
+        System.out.printf("Wrote %s in %.1f s%n", path, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Every distinct position reachable in at most plies moves without either side having won,
+    // one of each mirror pair: the one whose key is canonical
+    private static void collect(Position position, int plies, Set<Long> seen, List<Position> found)
+    {
+        if (!seen.add(position.canonicalKey()))
+            return;
+
+        found.add(position.isMirrored() ? mirrored(position) : new Position(position));
+
+        if (position.moves() == plies)
+            return;
+
+        for (int col = 0; col < position.columns(); col++)
+            if (position.canPlay(col))
+            {
+                position.play(col);
+
+                if (!position.wonWith(col))
+                    collect(position, plies, seen, found);
+
+                position.undo(col);
+            }
+    }
+
+    private static Position mirrored(Position position)
+    {
+        Position mirror = new Position(position.variant());
+
+        for (int ply = 0; ply < position.moves(); ply++)
+            mirror.play(position.mirror(position.column(ply)));
+
+        return mirror;
+    }
+}
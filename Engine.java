@@ -0,0 +1,904 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Engine
+{
+    private static final int INFINITY = 1_000_000;
+    private static final int NO_CUTOFF = Integer.MIN_VALUE;
+
+    // A score drop between iterations larger than this marks the position unstable, which buys
+    // it more time under a budget: a bit more than a near-win window is worth
+    private static final int UNSTABLE_DROP = 60;
+
+    // How many times longer an iteration is expected to take than the one before it
+    private static final int ITERATION_GROWTH = 2;
+
+    private final int depth;
+    private final boolean alphaBeta;
+    private final TranspositionTable table;
+    private final int threads;
+    private final ExecutorService helpers;
+
+    private final SearchStats stats = new SearchStats();
+    private EngineMetrics metrics;
+    private OpeningBook book;
+    private Solver solver;
+    private int solverEmptyCells;
+    private MonteCarlo monteCarlo;
+    private Evaluator evaluator = Evaluator.WINDOWS;
+    private TimeControl timeControl;
+    private int score;
+    private boolean solved;
+    private volatile boolean stopped;
+    private volatile boolean cancelled;
+
+    public Engine(int depth, boolean alphaBeta)
+    {
+        this(depth, alphaBeta, null, 1);
+    }
+
+    public Engine(int depth, boolean alphaBeta, TranspositionTable table)
+    {
+        this(depth, alphaBeta, table, 1);
+    }
+
+    // With more than one thread the extra threads run Lazy SMP helper searches that share work
+    // only through the transposition table
+    public Engine(int depth, boolean alphaBeta, TranspositionTable table, int threads)
+    {
+        if (threads > 1 && (!alphaBeta || table == null))
+            throw new IllegalArgumentException("Parallel search needs alpha-beta and a transposition table");
+
+        this.depth = depth;
+        this.alphaBeta = alphaBeta;
+        this.table = table;
+        this.threads = threads;
+
+        helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r ->
+        {
+            Thread thread = new Thread(r, "connect4-search");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // -Dconnect4.search=minimax switches back to the plain minimax search for A/B comparisons,
+    // and -Dconnect4.search=mcts to Monte Carlo tree search with -Dconnect4.mcts.iterations
+    // rollouts per move (default 100,000, or no limit with a move time) in a tree of
+    // -Dconnect4.mcts.mb megabytes (default 32);
+    // -Dconnect4.tt.mb sizes the transposition table, 0 turns it off;
+    // -Dconnect4.threads sets the number of search threads;
+    // -Dconnect4.book names an opening book file written by BookGenerator;
+    // -Dconnect4.eval names an n-tuple network weight file written by NTupleTrainer, to evaluate
+    // leaves with instead of the window score;
+    // -Dconnect4.solver.empty is the number of empty cells at which the exact solver takes over, 0 turns it off;
+    // -Dconnect4.cache names a ResultCache file that keeps the solver's results across runs;
+    // -Dconnect4.movetime limits each move to that many milliseconds, and -Dconnect4.gametime
+    // all of a game's moves together, with the depth (then unlimited by default) only a cap;
+    // -Dconnect4.instrument=true counts search details and publishes them over JMX
+    public static Engine fromProperties()
+    {
+        String search = System.getProperty("connect4.search", "alphabeta");
+        boolean mcts = search.equals("mcts");
+        boolean alphaBeta = !search.equals("minimax");
+        int megabytes = mcts ? 0 : Integer.getInteger("connect4.tt.mb", 32);
+        TranspositionTable table = alphaBeta && megabytes > 0 ? new TranspositionTable(megabytes) : null;
+        int threads = table != null ? Integer.getInteger("connect4.threads", 1) : 1;
+        long moveTime = Long.getLong("connect4.movetime", 0);
+        long gameTime = Long.getLong("connect4.gametime", 0);
+        boolean timed = moveTime > 0 || gameTime > 0;
+        int defaultDepth = !alphaBeta ? 3 : timed ? Variant.fromProperties().cells() : 10;
+
+        Engine engine = new Engine(Integer.getInteger("connect4.depth", defaultDepth), alphaBeta, table, threads);
+
+        if (gameTime > 0)
+            engine.setTimeControl(TimeControl.perGame(gameTime));
+        else
+            engine.setMoveTime(moveTime);
+
+        if (mcts)
+        {
+            int iterations = Integer.getInteger("connect4.mcts.iterations", timed ? Integer.MAX_VALUE : 100_000);
+            engine.setMonteCarlo(new MonteCarlo(iterations, Integer.getInteger("connect4.threads", 1),
+                    Integer.getInteger("connect4.mcts.mb", 32)));
+        }
+
+        int solverEmptyCells = Integer.getInteger("connect4.solver.empty", 22);
+
+        if (solverEmptyCells > 0)
+        {
+            Solver solver = new Solver(new TranspositionTable(Integer.getInteger("connect4.solver.mb", 32)));
+            solver.setCache(ResultCache.fromProperties(Variant.fromProperties()));
+            engine.setSolver(solver, solverEmptyCells);
+        }
+
+        String weights = System.getProperty("connect4.eval");
+
+        if (weights != null)
+        {
+            NTupleNetwork network;
+
+            try
+            {
+                network = NTupleNetwork.load(Path.of(weights));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Cannot load n-tuple network " + weights, e);
+            }
+
+            Variant variant = Variant.fromProperties();
+            Variant trained = network.variant();
+
+            if (trained.rows() != variant.rows() || trained.columns() != variant.columns() || trained.connect() != variant.connect())
+                throw new IllegalArgumentException("N-tuple network " + weights + " was trained for another board");
+
+            engine.setEvaluator(network);
+        }
+
+        String book = System.getProperty("connect4.book");
+
+        if (book != null)
+        {
+            try
+            {
+                engine.setOpeningBook(OpeningBook.open(Path.of(book)));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Cannot open opening book " + book, e);
+            }
+        }
+
+        if (SearchStats.ENABLED)
+            EngineMetrics.register(engine);
+
+        return engine;
+    }
+
+    // An engine for analyze() to run beside this one. It shares this engine's evaluator, which
+    // it only reads, and has its own transposition table of -Dconnect4.analysis.mb megabytes
+    // (default 8). analyze() uses no book, solver or helper threads, so it gets none, and it is
+    // not registered for metrics.
+    public Engine forAnalysis()
+    {
+        int megabytes = Integer.getInteger("connect4.analysis.mb", 8);
+        Engine engine = new Engine(Variant.fromProperties().cells(), true,
+                megabytes > 0 ? new TranspositionTable(megabytes) : null);
+        engine.setEvaluator(evaluator);
+
+        return engine;
+    }
+
+    // Every aiMove's statistics are recorded into metrics; null stops recording
+    public void setMetrics(EngineMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    public void setOpeningBook(OpeningBook book)
+    {
+        this.book = book;
+    }
+
+    // With a move time the search returns the best move of the last depth it completed once the
+    // time is up; 0 means no limit, and depth is then the only bound
+    public void setMoveTime(long millis)
+    {
+        timeControl = millis > 0 ? TimeControl.perMove(millis) : null;
+    }
+
+    // A per-move or per-game budget; null for none
+    public void setTimeControl(TimeControl timeControl)
+    {
+        this.timeControl = timeControl;
+    }
+
+    public TimeControl timeControl()
+    {
+        return timeControl;
+    }
+
+    // Positions with at most emptyCells empty cells are solved exactly instead of searched
+    public void setSolver(Solver solver, int emptyCells)
+    {
+        this.solver = solver;
+        this.solverEmptyCells = emptyCells;
+    }
+
+    // Moves that neither the book nor the solver answers are searched by Monte Carlo tree search
+    // instead of alpha-beta or minimax; null switches back
+    public void setMonteCarlo(MonteCarlo monteCarlo)
+    {
+        this.monteCarlo = monteCarlo;
+    }
+
+    // Scores the leaves of the alpha-beta and minimax searches; Evaluator.WINDOWS by default
+    public void setEvaluator(Evaluator evaluator)
+    {
+        this.evaluator = evaluator;
+    }
+
+    public TranspositionTable table()
+    {
+        return table;
+    }
+
+    public int threads()
+    {
+        return threads;
+    }
+
+    // Totals for the last aiMove across all search threads
+    public SearchStats stats()
+    {
+        return stats;
+    }
+
+    public long nodes()
+    {
+        return stats.nodes;
+    }
+
+    // Score of the last aiMove's chosen column from the mover's point of view; an exact Solver
+    // score when solved() is true, MonteCarlo's expected result in thousandths when searching
+    // with it, a heuristic one otherwise
+    public int score()
+    {
+        return score;
+    }
+
+    public boolean solved()
+    {
+        return solved;
+    }
+
+    // Forgets the previous game's search results so that games do not depend on each other
+    public void newGame()
+    {
+        if (table != null)
+            table.clear();
+
+        if (timeControl != null)
+            timeControl.newGame();
+    }
+
+    // Makes a running aiMove return early with the best move of its last completed iteration.
+    // The cancel also holds for every later aiMove until resume(), so one that is about to start
+    // cannot miss it.
+    public void cancel()
+    {
+        cancelled = true;
+
+        if (solver != null)
+            solver.cancel();
+
+        if (monteCarlo != null)
+            monteCarlo.cancel();
+    }
+
+    // Lets aiMove search again after cancel()
+    public void resume()
+    {
+        cancelled = false;
+
+        if (solver != null)
+            solver.resume();
+
+        if (monteCarlo != null)
+            monteCarlo.resume();
+    }
+
+    public void shutdown()
+    {
+        if (helpers != null)
+            helpers.shutdownNow();
+
+        if (monteCarlo != null)
+            monteCarlo.shutdown();
+
+        if (metrics != null)
+            metrics.unregister();
+
+        // Writes out the solver's last results
+        if (solver != null && solver.cache() != null)
+        {
+            try
+            {
+                solver.cache().close();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Cannot flush the result cache", e);
+            }
+        }
+    }
+
+    // Returns the column the side to move should play, or -1 if the board is full
+    public int aiMove(Position root)
+    {
+        return aiMove(root, true);
+    }
+
+    // aiMove for a search on the opponent's time, which a per-game budget is not charged for
+    public int ponderMove(Position root)
+    {
+        return aiMove(root, false);
+    }
+
+    private int aiMove(Position root, boolean charged)
+    {
+        long start = System.nanoTime();
+        stats.reset();
+
+        int col = search(root, start);
+        stats.nanos = System.nanoTime() - start;
+
+        if (timeControl != null && charged)
+            timeControl.charge(start, start + stats.nanos);
+
+        if (metrics != null)
+            metrics.record(stats);
+
+        return col;
+    }
+
+    // Receives each depth analyze() completes, on the thread running analyze()
+    public interface AnalysisListener
+    {
+        void onDepth(Analysis analysis);
+    }
+
+    // Deepens on the position one iteration at a time, scoring every column with a full window
+    // rather than only proving the best one, and reports each completed depth. Runs until
+    // cancel(), or until it has searched to the end of the game. Uses the alpha-beta search
+    // without book, solver or helper threads, and no move time.
+    public void analyze(Position root, AnalysisListener listener)
+    {
+        long start = System.nanoTime();
+
+        if (table != null)
+            table.newSearch();
+
+        Search search = new Search(new Position(root), false);
+        int[] scores = new int[root.columns()];
+        int emptyCells = root.variant().cells() - root.moves();
+
+        for (int d = 0; d < emptyCells; d++)
+        {
+            if (!search.scoreColumns(d, scores))
+                return;
+
+            int[] pv = search.principalVariation(Analysis.bestColumn(scores), d + 1);
+            listener.onDepth(new Analysis(d, scores, pv, search.stats.nodes, System.nanoTime() - start));
+        }
+    }
+
+    private int search(Position root, long start)
+    {
+        long[] deadlines = timeControl != null ? timeControl.deadlines(root, start)
+                : new long[] { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+        solved = false;
+
+        // Books are generated for the standard board only
+        if (book != null && root.moves() <= book.plies() && root.variant().equals(Variant.STANDARD))
+        {
+            // Books hold canonical positions only
+            int index = book.find(root.canonicalKey());
+
+            if (index != -1)
+            {
+                stats.depthReached = 0;
+                score = book.score(index);
+                return root.isMirrored() ? root.mirror(book.move(index)) : book.move(index);
+            }
+        }
+
+        if (solver != null && root.variant().cells() - root.moves() <= solverEmptyCells)
+        {
+            // Past the soft deadline the solver gives way to the heuristic search for the rest
+            int col = solver.bestMove(root, deadlines[0]);
+            stats.nodes = solver.nodes();
+
+            if (!solver.cancelled())
+            {
+                stats.depthReached = root.variant().cells() - root.moves();
+                score = solver.score();
+                solved = true;
+                return col;
+            }
+        }
+
+        if (monteCarlo != null)
+        {
+            int col = monteCarlo.bestMove(root, deadlines[2]);
+            stats.nodes = monteCarlo.rollouts();
+            stats.depthReached = monteCarlo.depthReached();
+            score = monteCarlo.score();
+            return col;
+        }
+
+        if (!alphaBeta)
+        {
+            Search search = new Search(root, false);
+            int col = search.minimaxRoot(root.currentPlayer());
+            stats.add(search.stats);
+            stats.depthReached = depth;
+            score = search.rootScore;
+            return col;
+        }
+
+        if (table != null)
+            table.newSearch();
+
+        stopped = false;
+        List<Future<SearchStats>> futures = new ArrayList<>();
+
+        for (int i = 1; i < threads; i++)
+        {
+            Search helper = new Search(new Position(root), true);
+            int offset = i & 1;
+
+            futures.add(helpers.submit(() ->
+            {
+                helper.iterate(offset);
+                return helper.stats;
+            }));
+        }
+
+        Search main = new Search(root, false);
+        main.start = start;
+        main.softDeadline = deadlines[0];
+        main.extendedDeadline = deadlines[1];
+        main.deadline = deadlines[2];
+        int bestCol = main.iterate(0);
+
+        stopped = true;
+        stats.add(main.stats);
+        System.arraycopy(main.stats.depthNanos, 0, stats.depthNanos, 0, SearchStats.MAX_DEPTH);
+        score = main.rootScore;
+
+        try
+        {
+            for (Future<SearchStats> future : futures)
+                stats.add(future.get());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return bestCol;
+    }
+
+    // State for one search thread: its own copy of the position and its own counters
+    private class Search
+    {
+        private final Position position;
+        private final int columns;
+        private final int[] columnOrder;
+        private final boolean helper;
+        private final SearchStats stats = new SearchStats();
+
+        private int aiPlayer;
+        private int rootScore;
+        private long start;
+        private long softDeadline = Long.MAX_VALUE;
+        private long extendedDeadline = Long.MAX_VALUE;
+        private long deadline = Long.MAX_VALUE;
+        private boolean timedOut;
+
+        Search(Position position, boolean helper)
+        {
+            this.position = position;
+            this.helper = helper;
+
+            columns = position.columns();
+            columnOrder = position.variant().columnOrder;
+        }
+
+        // Iterative deepening: each iteration tries the previous iteration's best move first.
+        // Helpers with an odd offset run one ply ahead so threads spread over different depths.
+        // Under a time budget the main thread only starts an iteration it expects to finish,
+        // as an unfinished one is thrown away.
+        int iterate(int offset)
+        {
+            int bestCol = -1;
+            int previousScore = 0;
+            boolean unstable = false;
+            long lastIteration = 0;
+
+            for (int d = 0; d <= depth && !aborted(); d++)
+            {
+                long began = System.nanoTime();
+
+                if (!helper && d > 0 && !timeForIteration(began, lastIteration, unstable))
+                    break;
+
+                int col = alphaBetaRoot(Math.min(depth, d + offset), bestCol);
+
+                if (!helper && !aborted())
+                {
+                    unstable = d > 0 && (col != bestCol || rootScore < previousScore - UNSTABLE_DROP);
+                    previousScore = rootScore;
+                    lastIteration = System.nanoTime() - began;
+
+                    if (d < SearchStats.MAX_DEPTH)
+                    {
+                        stats.depthReached = d;
+                        stats.depthNanos[d] = System.nanoTime() - start;
+                    }
+                }
+
+                bestCol = col;
+            }
+
+            // Stopped before even the first iteration finished: any legal move beats none
+            for (int i = 0; i < columns && bestCol == -1; i++)
+                if (position.canPlay(columnOrder[i]))
+                    bestCol = columnOrder[i];
+
+            return bestCol;
+        }
+
+        // Before the soft deadline, or the extended one if the last iteration changed its mind,
+        // and with time to finish before the hard one if the next iteration takes as much longer
+        // than the last as iterations usually do
+        private boolean timeForIteration(long now, long lastIteration, boolean unstable)
+        {
+            if (now > (unstable ? extendedDeadline : softDeadline))
+                return false;
+
+            return deadline == Long.MAX_VALUE || now + ITERATION_GROWTH * lastIteration <= deadline;
+        }
+
+        // Helper threads give up as soon as the main thread has its answer
+        private boolean aborted()
+        {
+            return cancelled || timedOut || helper && stopped;
+        }
+
+        int minimaxRoot(int player)
+        {
+            aiPlayer = player;
+
+            int bestCol = -1;
+            int bestValue = Integer.MIN_VALUE;
+
+            // On a symmetric board the right half mirrors the left; ties go to the lower column anyway
+            boolean symmetric = position.isSymmetric();
+
+            for (int col = 0; col < columns; col++)
+                if (position.canPlay(col) && !(symmetric && col > position.mirror(col)))
+                {
+                    position.play(col);
+                    int value = minimax(depth, false, col);
+
+                    if (value > bestValue)
+                    {
+                        bestValue = value;
+                        bestCol = col;
+                    }
+
+                    position.undo(col);
+                }
+
+            rootScore = bestValue;
+            return bestCol;
+        }
+
+        private int minimax(int depth, boolean isMaximizingPlayer, int lastCol)
+        {
+            stats.nodes++;
+
+            // Evaluate the board and return the score if the depth is reached or the game is over
+            if (depth == 0 || isGameOver(lastCol))
+            {
+                if (SearchStats.ENABLED)
+                    countLeaf(lastCol);
+
+                return evaluateBoard(aiPlayer);
+            }
+
+            if (SearchStats.ENABLED)
+                stats.expandedNodes++;
+
+            int bestValue;
+
+            if (isMaximizingPlayer)
+            {
+                bestValue = Integer.MIN_VALUE;
+
+                for (int col = 0; col < columns; col++)
+                    if (position.canPlay(col))
+                    {
+                        if (SearchStats.ENABLED)
+                            stats.childrenSearched++;
+
+                        position.play(col);
+                        bestValue = Math.max(bestValue, minimax(depth - 1, false, col));
+                        position.undo(col);
+                    }
+            }
+            else
+            {
+                bestValue = Integer.MAX_VALUE;
+
+                for (int col = 0; col < columns; col++)
+                    if (position.canPlay(col))
+                    {
+                        if (SearchStats.ENABLED)
+                            stats.childrenSearched++;
+
+                        position.play(col);
+                        bestValue = Math.min(bestValue, minimax(depth - 1, true, col));
+                        position.undo(col);
+                    }
+            }
+
+            return bestValue;
+        }
+
+        private int alphaBetaRoot(int depth, int firstCol)
+        {
+            int bestCol = -1;
+            int bestValue = -INFINITY;
+            boolean symmetric = position.isSymmetric();
+
+            for (int i = -1; i < columns; i++)
+            {
+                int col = i < 0 ? firstCol : columnOrder[i];
+
+                if (col == -1 || (i >= 0 && col == firstCol) || !position.canPlay(col))
+                    continue;
+
+                // A mirror move scores the same, and the lower column wins ties
+                if (symmetric && col > position.mirror(col))
+                    continue;
+
+                // Ties go to the lowest column, as in the minimax search, so both searches agree at equal depth
+                int alpha = bestCol == -1 ? -INFINITY : col < bestCol ? bestValue - 1 : bestValue;
+
+                position.play(col);
+                int value = -negamax(depth, -INFINITY, -alpha, col);
+                position.undo(col);
+
+                if (aborted())
+                    return firstCol;
+
+                if (bestCol == -1 || value > alpha)
+                {
+                    bestValue = value;
+                    bestCol = col;
+                }
+            }
+
+            rootScore = bestValue;
+            return bestCol;
+        }
+
+        // Every column's exact score at the depth, or Analysis.NO_SCORE; false if cancelled
+        // before all were scored. On a symmetric board a column takes its mirror's score.
+        boolean scoreColumns(int depth, int[] scores)
+        {
+            boolean symmetric = position.isSymmetric();
+
+            for (int i = 0; i < columns; i++)
+            {
+                int col = columnOrder[i];
+
+                if (!position.canPlay(col))
+                    scores[col] = Analysis.NO_SCORE;
+                else if (!(symmetric && col > position.mirror(col)))
+                {
+                    position.play(col);
+                    scores[col] = -negamax(depth, -INFINITY, INFINITY, col);
+                    position.undo(col);
+
+                    if (aborted())
+                        return false;
+                }
+            }
+
+            for (int col = 0; symmetric && col < columns; col++)
+                if (col > position.mirror(col))
+                    scores[col] = scores[position.mirror(col)];
+
+            return true;
+        }
+
+        // The column, then the best replies the table holds, up to length moves in all
+        int[] principalVariation(int col, int length)
+        {
+            int[] moves = new int[length];
+            int count = 0;
+
+            while (col != -1 && count < length && position.canPlay(col))
+            {
+                position.play(col);
+                moves[count++] = col;
+
+                if (table == null || isGameOver(col))
+                    break;
+
+                long entry = table.probe(position.canonicalKey());
+                int move = entry == 0 ? TranspositionTable.NO_MOVE : TranspositionTable.move(entry);
+
+                col = move == TranspositionTable.NO_MOVE ? -1 : position.isMirrored() ? position.mirror(move) : move;
+            }
+
+            for (int i = count - 1; i >= 0; i--)
+                position.undo(moves[i]);
+
+            return Arrays.copyOf(moves, count);
+        }
+
+        private int negamax(int depth, int alpha, int beta, int lastCol)
+        {
+            // Reading the clock is comparatively slow, so only every 1024 nodes
+            if ((++stats.nodes & 1023) == 0 && System.nanoTime() > deadline)
+                timedOut = true;
+
+            if (depth == 0 || isGameOver(lastCol))
+            {
+                if (SearchStats.ENABLED)
+                    countLeaf(lastCol);
+
+                return evaluateBoard(position.currentPlayer());
+            }
+
+            long key = 0;
+            int firstCol = -1;
+            boolean mirrored = false;
+            boolean symmetric = false;
+
+            if (table != null)
+            {
+                // Mirror images share one entry under the canonical key, their moves mirrored
+                long own = position.key();
+                long mirror = position.mirrorKey();
+
+                mirrored = mirror < own;
+                symmetric = Position.SYMMETRY && mirror == own;
+                key = mirrored ? mirror : own;
+                long entry = table.probe(key);
+
+                if (SearchStats.ENABLED)
+                    stats.tableProbes++;
+
+                if (entry != 0)
+                {
+                    int move = TranspositionTable.move(entry);
+
+                    if (SearchStats.ENABLED)
+                        stats.tableHits++;
+
+                    if (move != TranspositionTable.NO_MOVE)
+                        firstCol = mirrored || symmetric && move > position.mirror(move) ? position.mirror(move) : move;
+
+                    if (TranspositionTable.depth(entry) >= depth)
+                    {
+                        int score = TranspositionTable.score(entry);
+                        int bound = TranspositionTable.bound(entry);
+                        int cutoff = bound != TranspositionTable.UPPER && score >= beta ? beta
+                                : bound != TranspositionTable.LOWER && score <= alpha ? alpha
+                                : bound == TranspositionTable.EXACT ? score : NO_CUTOFF;
+
+                        if (cutoff != NO_CUTOFF)
+                        {
+                            if (SearchStats.ENABLED)
+                                stats.tableCutoffs++;
+
+                            return cutoff;
+                        }
+                    }
+                }
+            }
+
+            int bestCol = TranspositionTable.NO_MOVE;
+            int originalAlpha = alpha;
+            int searched = 0;
+
+            if (SearchStats.ENABLED)
+                stats.expandedNodes++;
+
+            for (int i = -1; i < columns; i++)
+            {
+                int col = i < 0 ? firstCol : columnOrder[i];
+
+                if (col == -1 || (i >= 0 && col == firstCol) || !position.canPlay(col))
+                    continue;
+
+                if (symmetric && col > position.mirror(col))
+                    continue;
+
+                searched++;
+                position.play(col);
+                int value = -negamax(depth - 1, -beta, -alpha, col);
+                position.undo(col);
+
+                // An aborted helper's values are meaningless and must not reach the table
+                if (aborted())
+                    return 0;
+
+                if (value >= beta)
+                {
+                    if (SearchStats.ENABLED)
+                        countCutoff(searched);
+
+                    store(key, beta, depth, TranspositionTable.LOWER, mirrored ? position.mirror(col) : col);
+                    return beta;
+                }
+
+                if (value > alpha)
+                {
+                    alpha = value;
+                    bestCol = col;
+                }
+            }
+
+            if (SearchStats.ENABLED)
+                stats.childrenSearched += searched;
+
+            if (mirrored && bestCol != TranspositionTable.NO_MOVE)
+                bestCol = position.mirror(bestCol);
+
+            store(key, alpha, depth, alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER, bestCol);
+            return alpha;
+        }
+
+        private void countLeaf(int lastCol)
+        {
+            stats.leafEvaluations++;
+
+            if (isGameOver(lastCol))
+                stats.terminalNodes++;
+        }
+
+        private void countCutoff(int searched)
+        {
+            stats.cutoffs++;
+            stats.childrenSearched += searched;
+
+            if (searched == 1)
+                stats.firstMoveCutoffs++;
+        }
+
+        private void store(long key, int score, int depth, int bound, int move)
+        {
+            if (table != null)
+            {
+                table.store(key, score, depth, bound, move);
+
+                if (SearchStats.ENABLED)
+                    stats.tableStores++;
+            }
+        }
+
+        // Only the move just played can have ended the game
+        private boolean isGameOver(int lastCol)
+        {
+            return position.wonWith(lastCol) || position.isFull();
+        }
+
+        // Scored from the given player's point of view, so it can be negated for the opponent
+        private int evaluateBoard(int player)
+        {
+            return evaluator.evaluate(position, player);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Search statistics published over JMX, e.g. to JConsole or VisualVM. The engine records one
+// merged SearchStats per move; readers on the JMX threads only see finished moves.
+public class EngineMetrics implements EngineMetricsMBean
+{
+    private static final AtomicInteger ENGINES = new AtomicInteger();
+
+    private final SearchStats total = new SearchStats();
+    private SearchStats last = new SearchStats();
+    private long moves;
+    private long totalNanos;
+    private ObjectName name;
+
+    // Attaches new metrics to the engine and registers them as application:type=Engine,name=engine-<n>
+    public static EngineMetrics register(Engine engine)
+    {
+        EngineMetrics metrics = new EngineMetrics();
+
+        try
+        {
+            metrics.name = new ObjectName("application:type=Engine,name=engine-" + ENGINES.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metrics.name);
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Cannot register engine metrics", e);
+        }
+
+        engine.setMetrics(metrics);
+        return metrics;
+    }
+
+    // Removes the bean registered by register(), so that it no longer holds on to its engine
+    public void unregister()
+    {
+        if (name == null)
+            return;
+
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch (InstanceNotFoundException e)
+        {
+            // Already unregistered
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Cannot unregister engine metrics", e);
+        }
+
+        name = null;
+    }
+
+    synchronized void record(SearchStats stats)
+    {
+        last = stats.copy();
+        total.add(stats);
+        totalNanos += stats.nanos;
+        moves++;
+    }
+
+    @Override
+    public boolean isInstrumented()
+    {
+        return SearchStats.ENABLED;
+    }
+
+    @Override
+    public synchronized long getMoves()
+    {
+        return moves;
+    }
+
+    @Override
+    public synchronized long getNodes()
+    {
+        return total.nodes;
+    }
+
+    @Override
+    public synchronized double getNodesPerSecond()
+    {
+        return totalNanos == 0 ? 0 : total.nodes * 1e9 / totalNanos;
+    }
+
+    @Override
+    public synchronized double getSearchSeconds()
+    {
+        return totalNanos / 1e9;
+    }
+
+    @Override
+    public synchronized long getLastNodes()
+    {
+        return last.nodes;
+    }
+
+    @Override
+    public synchronized double getLastNodesPerSecond()
+    {
+        return last.nodesPerSecond();
+    }
+
+    @Override
+    public synchronized double getLastMoveMillis()
+    {
+        return last.millis();
+    }
+
+    @Override
+    public synchronized int getLastDepth()
+    {
+        return last.depthReached;
+    }
+
+    @Override
+    public synchronized double getLastBranchingFactor()
+    {
+        return last.branchingFactor();
+    }
+
+    @Override
+    public synchronized double getLastFirstMoveCutoffRate()
+    {
+        return last.firstMoveCutoffRate();
+    }
+
+    @Override
+    public synchronized double getLastTableHitRate()
+    {
+        return last.tableHitRate();
+    }
+
+    @Override
+    public synchronized String getLastMove()
+    {
+        return last.toString();
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        total.reset();
+        last = new SearchStats();
+        moves = totalNanos = 0;
+    }
+}
@@ -0,0 +1,34 @@
+package application;
+
+// Management interface for EngineMetrics; "last" values describe the most recent move, the
+// others cover every move since the engine started or since reset()
+public interface EngineMetricsMBean
+{
+    boolean isInstrumented();
+
+    long getMoves();
+
+    long getNodes();
+
+    double getNodesPerSecond();
+
+    double getSearchSeconds();
+
+    long getLastNodes();
+
+    double getLastNodesPerSecond();
+
+    double getLastMoveMillis();
+
+    int getLastDepth();
+
+    double getLastBranchingFactor();
+
+    double getLastFirstMoveCutoffRate();
+
+    double getLastTableHitRate();
+
+    String getLastMove();
+
+    void reset();
+}
@@ -0,0 +1,225 @@
+package application;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+
+// Runs engine searches on a background thread and hands the chosen column back on the JavaFX
+// application thread, so a deep search never blocks rendering or input.
+//
+// While the opponent thinks, ponder() puts the idle engine to work. It searches the positions
+// after each of the opponent's possible replies and keeps the answers. When the reply arrives in
+// requestMove, an answer that is already there is returned at once. If the search for that
+// reply is still running, it is left to finish; otherwise pondering is cancelled and the search
+// starts from scratch. Pondered searches run at the same depth as any other, so pondering trades
+// idle CPU time for response time, not for strength. They run on the opponent's time: a
+// per-game budget is charged only with how long a move waited for its pondered answer.
+public class EngineService
+{
+    private final Engine engine;
+    private final Executor callbacks;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread thread = new Thread(r, "connect4-engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean closed;
+
+    // The current pondering, guarded by this; null when the engine is not pondering
+    private Ponder ponder;
+
+    public EngineService(Engine engine)
+    {
+        this(engine, Platform::runLater);
+    }
+
+    // Runs the callbacks on the given executor instead of the FX thread, for use without JavaFX
+    public EngineService(Engine engine, Executor callbacks)
+    {
+        this.engine = engine;
+        this.callbacks = callbacks;
+    }
+
+    // Receives the chosen column and a copy of the search statistics for that move
+    public interface MoveCallback
+    {
+        void onMove(int col, SearchStats stats);
+    }
+
+    // Searches a snapshot of the position; onMove runs on the FX thread unless the service was shut down
+    public void requestMove(Position position, MoveCallback onMove)
+    {
+        Position snapshot = new Position(position);
+
+        synchronized (this)
+        {
+            Ponder pondered = ponder;
+            int reply = pondered != null ? pondered.replyTo(snapshot) : -1;
+
+            if (reply != -1 && pondered.stats[reply] != null)
+            {
+                stopPondering();
+                deliver(onMove, pondered.moves[reply], pondered.stats[reply]);
+                return;
+            }
+
+            // Already searching this reply: let it finish and answer, then stop
+            if (reply != -1 && pondered.searching == reply)
+            {
+                pondered.waiting = onMove;
+                pondered.waitingSince = System.nanoTime();
+                pondered.abandoned = true;
+                ponder = null;
+                return;
+            }
+
+            stopPondering();
+        }
+
+        executor.execute(() ->
+        {
+            int col = engine.aiMove(snapshot);
+            deliver(onMove, col, engine.stats().copy());
+        });
+    }
+
+    // Starts searching the replies to the position, in which the opponent is to move. Pondering
+    // stops at the next requestMove, ponder or stopPondering call.
+    public void ponder(Position position)
+    {
+        Ponder next = new Ponder(new Position(position));
+
+        synchronized (this)
+        {
+            stopPondering();
+            ponder = next;
+        }
+
+        executor.execute(next::run);
+    }
+
+    public synchronized void stopPondering()
+    {
+        if (ponder == null)
+            return;
+
+        ponder.abandoned = true;
+
+        if (ponder.searching != -1)
+        {
+            ponder.cancelled = true;
+            engine.cancel();
+        }
+
+        ponder = null;
+    }
+
+    public void shutdown()
+    {
+        closed = true;
+        engine.cancel();
+        executor.shutdownNow();
+        engine.shutdown();
+    }
+
+    private void deliver(MoveCallback onMove, int col, SearchStats stats)
+    {
+        callbacks.execute(() ->
+        {
+            if (!closed)
+                onMove.onMove(col, stats);
+        });
+    }
+
+    // The searches of one pondering, one per opponent reply
+    private final class Ponder
+    {
+        final Position root;
+        final int[] moves;
+        final SearchStats[] stats;
+
+        // Guarded by the service: the reply being searched or -1, who waits for its answer, and
+        // whether to stop after the current search or to cancel it
+        int searching = -1;
+        MoveCallback waiting;
+        long waitingSince;
+        boolean abandoned;
+        boolean cancelled;
+
+        Ponder(Position root)
+        {
+            this.root = root;
+            moves = new int[root.columns()];
+            stats = new SearchStats[root.columns()];
+        }
+
+        // The opponent's column if the position follows from the root by one move, or -1
+        int replyTo(Position position)
+        {
+            if (position.moves() != root.moves() + 1)
+                return -1;
+
+            int col = position.column(root.moves());
+            Position before = new Position(position);
+            before.undo(col);
+
+            return before.key() == root.key() ? col : -1;
+        }
+
+        // Searches the replies center-first, as those are the likeliest; replies that win end the
+        // game and need no answer
+        void run()
+        {
+            for (int col : root.variant().columnOrder())
+            {
+                Position child = new Position(root);
+
+                synchronized (EngineService.this)
+                {
+                    if (abandoned)
+                        return;
+
+                    if (!root.canPlay(col) || root.isWinningMove(col))
+                        continue;
+
+                    searching = col;
+                }
+
+                child.play(col);
+                int move = engine.ponderMove(child);
+                SearchStats searched = engine.stats().copy();
+                MoveCallback answer;
+                long waited;
+
+                synchronized (EngineService.this)
+                {
+                    searching = -1;
+
+                    // A cancelled search's move is not worth keeping
+                    if (cancelled)
+                    {
+                        engine.resume();
+                        return;
+                    }
+
+                    moves[col] = move;
+                    stats[col] = searched;
+                    answer = waiting;
+                    waited = System.nanoTime() - waitingSince;
+                }
+
+                if (answer != null)
+                {
+                    // On this thread, like every other change to the engine's clock
+                    if (engine.timeControl() != null)
+                        engine.timeControl().spend(waited);
+
+                    deliver(answer, move, searched);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Leaf evaluation cost: the longest-run evaluateBoard the engine used before against the
+// incrementally maintained window score, and an n-tuple network when given its weight file.
+// Usage: EvaluationBenchmark [positions] [rounds] [network]
+public class EvaluationBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        NTupleNetwork network = args.length > 2 ? NTupleNetwork.load(Path.of(args[2])) : null;
+
+        Random random = new Random(11);
+        Position[] positions = new Position[count];
+
+        for (int i = 0; i < count; i++)
+            positions[i] = SearchCompare.randomPosition(random);
+
+        long sink = 0;
+
+        for (int pass = 0; pass < 3; pass++)
+        {
+            long start = System.nanoTime();
+
+            for (int r = 0; r < rounds; r++)
+                for (Position position : positions)
+                    sink += longestRunScore(position, position.currentPlayer());
+
+            long runs = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            for (int r = 0; r < rounds; r++)
+                for (Position position : positions)
+                    sink += position.evaluate(position.currentPlayer());
+
+            long windows = System.nanoTime() - start;
+            double calls = (double) count * rounds;
+
+            System.out.printf("pass %d: longest-run %.2f ns/eval, window score %.2f ns/eval, %.1fx faster%n",
+                    pass + 1, runs / calls, windows / calls, (double) runs / windows);
+
+            if (network == null)
+                continue;
+
+            start = System.nanoTime();
+
+            for (int r = 0; r < rounds; r++)
+                for (Position position : positions)
+                    sink += network.evaluate(position, position.currentPlayer());
+
+            System.out.printf("        n-tuple network %.2f ns/eval%n", (System.nanoTime() - start) / calls);
+        }
+
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    // The previous evaluateBoard: 5 points per stone of difference in each direction's longest run
+    static int longestRunScore(Position position, int player)
+    {
+        int score = 0;
+
+        for (int direction = 0; direction < 4; direction++)
+            score += 5 * (position.longestRun(player, direction) - position.longestRun(1 - player, direction));
+
+        return score;
+    }
+}
@@ -0,0 +1,13 @@
+package application;
+
+// Scores the positions at the leaves of the alpha-beta and minimax searches. Scores are from
+// the given player's point of view, so that the opponent's score is the negation. A position
+// won by the player must score above anything a position still in play can get, and one won by
+// the opponent below anything.
+public interface Evaluator
+{
+    // The window score Position keeps up to date as moves are played, the default
+    Evaluator WINDOWS = Position::evaluate;
+
+    int evaluate(Position position, int player);
+}
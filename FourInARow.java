@@ -1,25 +1,52 @@
 package application;
 
-import java.util.function.BiFunction;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Label;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
-import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
+import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
 public class FourInARow extends Application
 {
-    private static final int ROWS = 6;
-    private static final int COLUMNS = 7;
-    private static final double CELL_SIZE = 100;
+    // -Dconnect4.rows, -Dconnect4.columns and -Dconnect4.connect pick the board
+    private static final Variant VARIANT = Variant.fromProperties();
+    private static final int ROWS = VARIANT.rows();
+    private static final int COLUMNS = VARIANT.columns();
+    private static final double CELL_SIZE = Math.min(100, 700.0 / Math.max(ROWS, COLUMNS));
 
-    private Circle[][] board;
+    // -Dconnect4.overlay=true shows the last search's statistics over the board
+    private static final boolean OVERLAY = Boolean.getBoolean("connect4.overlay");
+
+    // -Dconnect4.ponder=true lets the engine search the player's possible replies while they think
+    private static final boolean PONDER = Boolean.getBoolean("connect4.ponder");
+
+    // -Dconnect4.analysis=true analyzes every position on a second engine and shows each column's
+    // score and the best line as the search deepens
+    private static final boolean ANALYSIS = Boolean.getBoolean("connect4.analysis");
+
+    private BoardView board;
     private boolean player1Turn;
+    private Label statsLabel;
+    private Label analysisLabel;
+
+    private final Position position = new Position(VARIANT);
+    private final Engine engine = Engine.fromProperties();
+    private final EngineService engineService = new EngineService(engine);
+    private final Analyzer analyzer = ANALYSIS ? new Analyzer(engine.forAnalysis(), this::showAnalysis) : null;
+    private final GameStore gameStore = GameStore.fromProperties(VARIANT);
+    private boolean recorded;
 
     public static void main(String[] args)
     {
@@ -29,278 +56,190 @@ public class FourInARow extends Application
     @Override
     public void start(Stage primaryStage)
     {
-        GridPane grid = new GridPane();
-        grid.setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
+        board = new BoardView(VARIANT, CELL_SIZE);
+        player1Turn = true;
+
+        board.setOnColumnClicked(col ->
+        {
+            // Clicks are ignored while the AI is thinking and once the game is won
+            if (!player1Turn || !position.canPlay(col))
+                return;
+
+            player1Turn = false;
+
+            if (playMove(col, Color.YELLOW, "Player 1"))
+                return;
 
-        board = new Circle[ROWS][COLUMNS];
-        
-        for (int row = 0; row < ROWS; row++)
-            for (int col = 0; col < COLUMNS; col++)
+            setThinking(primaryStage, true);
+
+            // The search runs while the disc falls; the board animates regardless
+            engineService.requestMove(position, (aiCol, stats) ->
             {
-                Circle circle = new Circle(CELL_SIZE / 2, Color.WHITE);
-                board[row][col] = circle;
-                grid.add(circle, col, row);
-            }
+                setThinking(primaryStage, false);
 
-        player1Turn = true;
+                if (statsLabel != null)
+                    statsLabel.setText(statsText(stats));
+
+                if (aiCol != -1 && !playMove(aiCol, Color.RED, "AI Player"))
+                {
+                    player1Turn = true;
+
+                    if (PONDER && !position.isFull())
+                        engineService.ponder(position);
+                }
+            });
+        });
+
+        if (PONDER)
+            engineService.ponder(position);
 
-        grid.setOnMouseClicked(e ->
+        Region root = board;
+
+        if (OVERLAY || ANALYSIS)
         {
-            if (player1Turn)
+            StackPane pane = new StackPane(board);
+
+            if (OVERLAY)
             {
-                int col = (int) (e.getX() / CELL_SIZE);
-
-                if (col >= 0 && col < COLUMNS)
-                    for (int row = ROWS - 1; row >= 0; row--)
-                        if (board[row][col].getFill() == Color.WHITE)
-                        {
-                            board[row][col].setFill(Color.YELLOW);
-                            
-                            if (isWin(row, col))
-                            {
-                                showWinner("Player 1");
-                                return;
-                            }
-
-                            player1Turn = !player1Turn;
-                            break;
-                        }
+                statsLabel = overlayLabel("No search yet", Pos.TOP_LEFT);
+                pane.getChildren().add(statsLabel);
             }
 
-            if (!player1Turn)
+            if (ANALYSIS)
             {
-                int aiCol = aiMove();
-                
-                if (aiCol != -1)
-                    for (int aiRow = ROWS - 1; aiRow >= 0; aiRow--)
-                        if (board[aiRow][aiCol].getFill() == Color.WHITE)
-                        {
-                            board[aiRow][aiCol].setFill(Color.RED);
-                            
-                            if (isWin(aiRow, aiCol)) {
-                                showWinner("AI Player");
-                                return;
-                            }
-                            
-                            player1Turn = !player1Turn;
-                            break;
-                        }
+                analysisLabel = overlayLabel("Analyzing...", Pos.BOTTOM_LEFT);
+                analysisLabel.setFont(Font.font("Monospaced", 12));
+                pane.getChildren().add(analysisLabel);
+                analyzer.analyze(position);
             }
-        });
 
-        Scene scene = new Scene(grid, COLUMNS * CELL_SIZE, ROWS * CELL_SIZE);
+            root = pane;
+        }
+
+        Scene scene = new Scene(root, COLUMNS * CELL_SIZE, ROWS * CELL_SIZE, Color.BLACK);
         primaryStage.setTitle("Connect 4");
         primaryStage.setScene(scene);
-        primaryStage.setResizable(false);
         primaryStage.show();
     }
-    
-    private int minimax(int depth, boolean isMaximizingPlayer)
+
+    @Override
+    public void stop() throws IOException
     {
-        // Evaluate the board and return the score if the depth is reached or the game is over
-        if (depth == 0 || isGameOver())
-            return evaluateBoard();
+        engineService.shutdown();
+
+        if (analyzer != null)
+            analyzer.shutdown();
 
-        int bestValue;
-        
-        if (isMaximizingPlayer)
+        recordGame();
+
+        if (gameStore != null)
+            gameStore.close();
+    }
+
+    // Stores the game once: when it is won, or when the window closes in the middle of it
+    private void recordGame()
+    {
+        if (gameStore == null || recorded || position.moves() == 0)
+            return;
+
+        recorded = true;
+
+        try
         {
-            bestValue = Integer.MIN_VALUE;
-            
-            for (int col = 0; col < COLUMNS; col++)
-                if (makeMove(col, Color.RED))
-                {
-                    int value = minimax(depth - 1, false);
-                    bestValue = Math.max(bestValue, value);
-                    undoMove(col);
-                }
+            gameStore.append(position);
         }
-        else
+        catch (IOException e)
         {
-            bestValue = Integer.MAX_VALUE;
-            
-            for (int col = 0; col < COLUMNS; col++)
-                if (makeMove(col, Color.YELLOW))
-                {
-                    int value = minimax(depth - 1, true);
-                    bestValue = Math.min(bestValue, value);
-                    undoMove(col);
-                }
+            throw new UncheckedIOException("Cannot record the game", e);
         }
-
-        return bestValue;
     }
 
-    private boolean makeMove(int col, Color color)
+    // Drawn over the board; clicks go through to it
+    private static Label overlayLabel(String text, Pos alignment)
     {
-        for (int row = ROWS - 1; row >= 0; row--)
-            if (board[row][col].getFill() == Color.WHITE)
-            {
-                board[row][col].setFill(color);
-                return true;
-            }
-        
-        return false;
+        Label label = new Label(text);
+        label.setTextFill(Color.WHITE);
+        label.setPadding(new Insets(6));
+        label.setBackground(new Background(new BackgroundFill(Color.rgb(0, 0, 0, 0.6), null, null)));
+        label.setMouseTransparent(true);
+        StackPane.setAlignment(label, alignment);
+        return label;
     }
 
-    private void undoMove(int col)
+    // Only ever called with a result for the current position
+    private void showAnalysis(Analysis analysis)
     {
-        for (int row = 0; row < ROWS; row++)
-            if (board[row][col].getFill() != Color.WHITE)
-            {
-                board[row][col].setFill(Color.WHITE);
-                break;
-            }
-    }
+        StringBuilder text = new StringBuilder(String.format("%s to move: depth %d, %,d nodes, %.0f ms%n",
+                position.currentPlayer() == 0 ? "Player 1" : "AI Player", analysis.depth(), analysis.nodes(),
+                analysis.nanos() / 1e6));
 
-    private boolean isGameOver()
-    {
-        for (int row = 0; row < ROWS; row++)
-            for (int col = 0; col < COLUMNS; col++)
-                if (board[row][col].getFill() != Color.WHITE && isWin(row, col))
-                    return true;
-                
-        return false;
-    }
+        for (int col = 0; col < analysis.columns(); col++)
+            text.append(String.format("%7d", col + 1));
 
-    private int evaluateBoard()
-    {
-        int score = 0;
+        text.append(String.format("%n"));
 
-        // Helper function to count consecutive pieces in a given direction
-        BiFunction<Integer, Integer, Integer> countConsecutive = (dr, dc) ->
+        for (int col = 0; col < analysis.columns(); col++)
         {
-            int consecutiveAI = 0;
-            int consecutiveHuman = 0;
-            int maxConsecutiveAI = 0;
-            int maxConsecutiveHuman = 0;
+            int score = analysis.score(col);
+            text.append(score == Analysis.NO_SCORE ? String.format("%7s", "-") : String.format("%7d", score));
+        }
 
-            for (int row = 0; row < ROWS; row++)
-                for (int col = 0; col < COLUMNS; col++)
-                {
-                    Color current = (Color) board[row][col].getFill();
-                    
-                    if (current == Color.RED || current == Color.YELLOW)
-                    {
-                        int r = row, c = col;
-                        int count = 0;
-
-                        while (r >= 0 && r < ROWS && c >= 0 && c < COLUMNS && board[r][c].getFill() == current)
-                        {
-                            count++;
-                            r += dr;
-                            c += dc;
-                        }
-
-                        if (current == Color.RED)
-                        {
-                            consecutiveAI = Math.max(consecutiveAI, count);
-                            maxConsecutiveAI = Math.max(maxConsecutiveAI, consecutiveAI);
-                        }
-                        else
-                        {
-                            consecutiveHuman = Math.max(consecutiveHuman, count);
-                            maxConsecutiveHuman = Math.max(maxConsecutiveHuman, consecutiveHuman);
-                        }
-                    }
-                }
+        text.append(String.format("%nbest line"));
 
-            return 5 * (maxConsecutiveAI - maxConsecutiveHuman);
-        };
+        for (int col : analysis.principalVariation())
+            text.append(' ').append(col + 1);
 
-        // Evaluate horizontal lines
-        score += countConsecutive.apply(0, 1);
+        analysisLabel.setText(text.toString());
+    }
 
-        // Evaluate vertical lines
-        score += countConsecutive.apply(1, 0);
+    private static String statsText(SearchStats stats)
+    {
+        StringBuilder text = new StringBuilder(String.format("depth %d, %,d nodes, %.1f ms, %,.0f nodes/s",
+                stats.depthReached(), stats.nodes(), stats.millis(), stats.nodesPerSecond()));
 
-        // Evaluate diagonal lines (top-left to bottom-right)
-        score += countConsecutive.apply(1, 1);
+        if (SearchStats.ENABLED)
+            text.append(String.format("%nbranching %.2f, first-move cutoffs %.0f%%, table hits %.1f%%",
+                    stats.branchingFactor(), 100 * stats.firstMoveCutoffRate(), 100 * stats.tableHitRate()));
 
-        // Evaluate diagonal lines (bottom-left to top-right)
-        score += countConsecutive.apply(-1, 1);
+        for (int d = 0; d <= stats.depthReached() && d < SearchStats.MAX_DEPTH; d++)
+            if (stats.depthMillis(d) > 0)
+                text.append(String.format("%ndepth %d done at %.1f ms", d, stats.depthMillis(d)));
 
-        return score;
+        return text.toString();
     }
 
-    private int aiMove()
-    { 
-        int bestCol = -1;
-        int bestValue = Integer.MIN_VALUE;
-
-        for (int col = 0; col < COLUMNS; col++)
-            if (makeMove(col, Color.RED))
-            {
-                int value = minimax(3, false); // Change depth as desired
-                
-                if (value > bestValue)
-                {
-                    bestValue = value;
-                    bestCol = col;
-                }
-                
-                undoMove(col);
-            }
-
-        return bestCol;
+    private void setThinking(Stage stage, boolean thinking)
+    {
+        stage.setTitle(thinking ? "Connect 4 - AI is thinking..." : "Connect 4");
+        board.setCursor(thinking ? Cursor.WAIT : Cursor.DEFAULT);
     }
-
-    private boolean isWin(int row, int col)
+    
+    // Plays the move on the engine position and drops its disc on the board; returns true if it
+    // wins, in which case the winner is announced once the disc lands
+    private boolean playMove(int col, Color color, String player)
     {
-        Color playerColor = (Color) board[row][col].getFill();
+        int row = ROWS - 1 - position.height(col);
+        int mover = position.currentPlayer();
 
-        // Check horizontal
-        int count = 0;
-        for (int c = 0; c < COLUMNS; c++)
-        {
-            count = (board[row][c].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
-        }
-
-        // Check vertical
-        count = 0;
-        for (int r = 0; r < ROWS; r++)
-        {
-            count = (board[r][col].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
-        }
-        
-        // Check diagonal (top-left to bottom-right)
-        int startRow = Math.max(0, row - col);
-        int startCol = Math.max(0, col - row);
-        count = 0;
-        
-        for (int r = startRow, c = startCol; r < ROWS && c < COLUMNS; r++, c++)
-        {
-            count = (board[r][c].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
-        }
+        position.play(col);
+        boolean won = position.isWin(mover);
+        board.drop(col, row, color, won ? () -> showWinner(player) : null);
 
-        // Check diagonal (bottom-left to top-right)
-        startRow = Math.min(ROWS - 1, row + col);
-        startCol = Math.max(0, col - (ROWS - 1 - row));
-        count = 0;
-        
-        for (int r = startRow, c = startCol; r >= 0 && c < COLUMNS; r--, c++)
+        if (analyzer != null)
         {
-            count = (board[r][c].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
+            if (won || position.isFull())
+                analyzer.stop();
+            else
+                analyzer.analyze(position);
         }
 
-        return false;
+        return won;
     }
 
-
     private void showWinner(String winner)
     {
+        recordGame();
+
         Alert alert = new Alert(AlertType.INFORMATION);
         alert.setTitle("Connect 4");
         alert.setHeaderText("Game Over");
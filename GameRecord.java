@@ -0,0 +1,114 @@
+package application;
+
+// A finished or abandoned game as GameStore keeps it: the columns played, one per move, and how
+// it ended. Replaying rebuilds any position of the game with the engine's Position, without
+// JavaFX.
+public final class GameRecord
+{
+    public static final int FIRST_PLAYER_WON = 0;
+    public static final int SECOND_PLAYER_WON = 1;
+    public static final int DRAW = 2;
+    public static final int UNFINISHED = 3;
+
+    private static final String[] RESULT_NAMES = { "1-0", "0-1", "draw", "unfinished" };
+
+    private final Variant variant;
+    private final long id;
+    private final int result;
+    private final byte[] columns;
+
+    GameRecord(Variant variant, long id, int result, byte[] columns)
+    {
+        this.variant = variant;
+        this.id = id;
+        this.result = result;
+        this.columns = columns;
+    }
+
+    // How the game in the position ended, or UNFINISHED if it is still open
+    public static int resultOf(Position position)
+    {
+        if (position.isWin(0))
+            return FIRST_PLAYER_WON;
+
+        if (position.isWin(1))
+            return SECOND_PLAYER_WON;
+
+        return position.isFull() ? DRAW : UNFINISHED;
+    }
+
+    // Plays the first plies columns onto an empty board
+    public static Position replay(Variant variant, byte[] columns, int plies)
+    {
+        Position position = new Position(variant);
+
+        for (int i = 0; i < plies; i++)
+        {
+            int col = columns[i];
+
+            if (col < 0 || col >= variant.columns() || !position.canPlay(col))
+                throw new IllegalArgumentException("Invalid move " + col + " at " + i);
+
+            position.play(col);
+        }
+
+        return position;
+    }
+
+    public Variant variant()
+    {
+        return variant;
+    }
+
+    public long id()
+    {
+        return id;
+    }
+
+    public int result()
+    {
+        return result;
+    }
+
+    public int moves()
+    {
+        return columns.length;
+    }
+
+    // Column of the given move, counting from 0
+    public int column(int ply)
+    {
+        return columns[ply];
+    }
+
+    // The position after the first plies moves
+    public Position position(int plies)
+    {
+        return replay(variant, columns, plies);
+    }
+
+    // The final position
+    public Position position()
+    {
+        return replay(variant, columns, columns.length);
+    }
+
+    // The moves as 1-based column digits, as Position.fromMoves reads them; boards with more
+    // than nine columns separate the numbers with spaces
+    public String moveList()
+    {
+        StringBuilder moves = new StringBuilder(columns.length);
+
+        for (byte col : columns)
+            moves.append(variant.columns() <= 9 ? (char) ('1' + col) : col + 1 + " ");
+
+        return moves.toString().trim();
+    }
+
+    // The id, the move list and the result, e.g. "#12 4453 unfinished"
+    @Override
+    public String toString()
+    {
+        return "#" + id + " " + moveList() + " " + RESULT_NAMES[result];
+    }
+}
@@ -0,0 +1,517 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// Headless server for two-player games. One thread runs a non-blocking selector loop over every
+// connection, so all game state is confined to it and needs no locking. A game is a Position
+// and its two sessions; a session keeps two small buffers. This keeps thousands of games to a
+// few megabytes.
+//
+// Line protocol, ASCII, one command or reply per line, columns 1-based:
+//   server: HELLO <columns> <rows> <connect>       on connect
+//   client: JOIN                                   wait for an opponent
+//   server: START <1|2>                            paired; 1 moves first
+//   client: MOVE <column>
+//   server: OK                                     to the mover, once the move is applied
+//   server: OPPONENT <column>                      to the other player
+//   server: END <WIN|LOSS|DRAW>                    after the deciding move, or WIN when the opponent leaves
+//   client: QUIT                                   disconnect, forfeiting the current game
+//   server: ERROR <reason>                         the command was rejected and changed nothing
+//
+// Usage: GameServer [port] (default 4444; the board comes from -Dconnect4.rows/columns/connect,
+// and -Dconnect4.games records every game in a GameStore)
+public class GameServer implements Runnable, Closeable
+{
+    private static final int LINE_BYTES = 64;
+    private static final int OUTPUT_BYTES = 512;
+
+    private static final byte[] OK = ascii("OK\n");
+    private static final byte[][] START = { ascii("START 1\n"), ascii("START 2\n") };
+    private static final byte[] WIN = ascii("END WIN\n");
+    private static final byte[] LOSS = ascii("END LOSS\n");
+    private static final byte[] DRAW = ascii("END DRAW\n");
+
+    private final Variant variant;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final byte[] hello;
+    private final byte[][] opponentMoves;
+
+    private GameStore gameStore;
+    private Session waiting;
+    private int sessions;
+    private int games;
+
+    // Guarded by this; run() sets running while it owns the selector
+    private boolean closed;
+    private boolean running;
+
+    public GameServer(InetSocketAddress address, Variant variant) throws IOException
+    {
+        this.variant = variant;
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        hello = ascii("HELLO " + variant.columns() + " " + variant.rows() + " " + variant.connect() + "\n");
+        opponentMoves = new byte[variant.columns()][];
+
+        for (int col = 0; col < opponentMoves.length; col++)
+            opponentMoves[col] = ascii("OPPONENT " + (col + 1) + "\n");
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4444;
+
+        Variant variant = Variant.fromProperties();
+
+        try (GameServer server = new GameServer(new InetSocketAddress(port), variant);
+                GameStore gameStore = GameStore.fromProperties(variant))
+        {
+            server.setGameStore(gameStore);
+            System.out.printf("Serving %s games on port %d%n", server.variant, server.port());
+            server.run();
+        }
+    }
+
+    // Finished and abandoned games are appended to the store; null records nothing
+    public void setGameStore(GameStore gameStore)
+    {
+        this.gameStore = gameStore;
+    }
+
+    public int port()
+    {
+        return server.socket().getLocalPort();
+    }
+
+    // Runs the selector loop until close() is called, then closes every connection and the
+    // selector on this thread
+    @Override
+    public void run()
+    {
+        synchronized (this)
+        {
+            if (closed)
+                return;
+
+            running = true;
+        }
+
+        try
+        {
+            while (!isClosed())
+            {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid())
+                        continue;
+
+                    if (key.isAcceptable())
+                        accept();
+                    else
+                    {
+                        Session session = (Session) key.attachment();
+
+                        try
+                        {
+                            if (key.isWritable())
+                                session.flush();
+
+                            if (key.isValid() && key.isReadable())
+                                read(session);
+                        }
+                        catch (IOException e)
+                        {
+                            disconnect(session);
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            if (!isClosed())
+                throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                running = false;
+                release();
+            }
+        }
+    }
+
+    // Stops the selector loop from any thread. The key set is not thread-safe, so while run() is
+    // in the loop the channels are left for it to close once select() wakes up.
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+
+        if (running)
+            selector.wakeup();
+        else
+            release();
+    }
+
+    // Connected sessions and games in progress, for monitoring; only exact on the selector thread
+    public int sessions()
+    {
+        return sessions;
+    }
+
+    public int games()
+    {
+        return games;
+    }
+
+    private synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    // Closes every connection, the listening one included, and the selector; called with the
+    // lock held, by the selector thread or by close() when no loop is running
+    private void release()
+    {
+        if (!selector.isOpen())
+            return;
+
+        for (SelectionKey key : selector.keys())
+        {
+            try
+            {
+                key.channel().close();
+            }
+            catch (IOException e)
+            {
+                // Nothing left to release
+            }
+        }
+
+        try
+        {
+            selector.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing left to release
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel;
+
+        while ((channel = server.accept()) != null)
+        {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            Session session = new Session(channel);
+            session.key = channel.register(selector, SelectionKey.OP_READ, session);
+            sessions++;
+
+            send(session, hello);
+        }
+    }
+
+    private void read(Session session) throws IOException
+    {
+        ByteBuffer in = session.in;
+
+        if (session.channel.read(in) < 0)
+        {
+            disconnect(session);
+            return;
+        }
+
+        // Handle every complete line, then keep the partial one at the start of the buffer
+        in.flip();
+        int start = 0;
+
+        for (int i = 0; i < in.limit(); i++)
+            if (in.get(i) == '\n')
+            {
+                handle(session, in, start, i);
+                start = i + 1;
+
+                if (!session.key.isValid())
+                    return;
+            }
+
+        in.position(start);
+        in.compact();
+
+        if (!in.hasRemaining())
+        {
+            send(session, ascii("ERROR line too long\n"));
+            disconnect(session);
+        }
+    }
+
+    private void handle(Session session, ByteBuffer in, int start, int end)
+    {
+        if (end > start && in.get(end - 1) == '\r')
+            end--;
+
+        String line = new String(in.array(), start, end - start, StandardCharsets.US_ASCII);
+
+        if (line.equals("JOIN"))
+            join(session);
+        else if (line.startsWith("MOVE "))
+            move(session, line.substring(5));
+        else if (line.equals("QUIT"))
+            disconnect(session);
+        else
+            send(session, ascii("ERROR unknown command\n"));
+    }
+
+    private void join(Session session)
+    {
+        if (session.game != null || waiting == session)
+        {
+            send(session, ascii("ERROR already joined\n"));
+            return;
+        }
+
+        if (waiting == null)
+        {
+            waiting = session;
+            return;
+        }
+
+        Game game = new Game(new Position(variant), waiting, session);
+        waiting = null;
+        games++;
+
+        for (int player = 0; player < 2; player++)
+        {
+            game.players[player].game = game;
+            game.players[player].player = player;
+        }
+
+        // Sending can drop a player, which ends the game before the other one hears of it
+        for (int player = 0; player < 2 && game.players[player].game == game; player++)
+            send(game.players[player], START[player]);
+    }
+
+    private void move(Session session, String argument)
+    {
+        Game game = session.game;
+
+        if (game == null)
+        {
+            send(session, ascii("ERROR not in a game\n"));
+            return;
+        }
+
+        Position position = game.position;
+
+        if (position.currentPlayer() != session.player)
+        {
+            send(session, ascii("ERROR not your turn\n"));
+            return;
+        }
+
+        int col;
+
+        try
+        {
+            col = Integer.parseInt(argument) - 1;
+        }
+        catch (NumberFormatException e)
+        {
+            col = -1;
+        }
+
+        if (col < 0 || col >= position.columns() || !position.canPlay(col))
+        {
+            send(session, ascii("ERROR illegal move\n"));
+            return;
+        }
+
+        // The same rules as the local games: Position decides legality and wins
+        position.play(col);
+
+        Session opponent = game.players[1 - session.player];
+        boolean won = position.wonWith(col);
+        boolean over = won || position.isFull();
+
+        // End the game before replying, so a player dropped by a failed send finds it over
+        if (over)
+            end(game);
+
+        send(session, OK);
+        send(opponent, opponentMoves[col]);
+
+        if (over)
+        {
+            send(session, won ? WIN : DRAW);
+            send(opponent, won ? LOSS : DRAW);
+        }
+    }
+
+    // The player leaves a running game, which the opponent wins
+    private void forfeit(Session session)
+    {
+        Session opponent = session.game.players[1 - session.player];
+
+        end(session.game);
+        send(opponent, WIN);
+    }
+
+    private void end(Game game)
+    {
+        game.players[0].game = null;
+        game.players[1].game = null;
+        games--;
+
+        if (gameStore != null)
+        {
+            try
+            {
+                gameStore.append(game.position);
+            }
+            catch (IOException e)
+            {
+                // Losing a record must not stop the games in progress
+                System.err.println("Cannot record game: " + e);
+            }
+        }
+    }
+
+    private void disconnect(Session session)
+    {
+        if (!session.key.isValid())
+            return;
+
+        session.key.cancel();
+        sessions--;
+
+        try
+        {
+            session.channel.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing left to release
+        }
+
+        if (waiting == session)
+            waiting = null;
+
+        if (session.game != null)
+            forfeit(session);
+    }
+
+    // A send that fails drops that player, and only that player
+    private void send(Session session, byte[] reply)
+    {
+        try
+        {
+            session.send(reply);
+        }
+        catch (IOException e)
+        {
+            disconnect(session);
+        }
+    }
+
+    private static byte[] ascii(String text)
+    {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Game
+    {
+        final Position position;
+        final Session[] players;
+
+        Game(Position position, Session first, Session second)
+        {
+            this.position = position;
+            this.players = new Session[] { first, second };
+        }
+    }
+
+    private static final class Session
+    {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(LINE_BYTES);
+
+        // Replies the socket did not take yet, in write mode; allocated on first use
+        ByteBuffer out;
+        SelectionKey key;
+        Game game;
+        int player;
+
+        Session(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        // Writes straight to the socket and queues what does not fit. A client that stops
+        // reading until the queue is full is disconnected rather than buffered without bound.
+        void send(byte[] reply) throws IOException
+        {
+            if (!key.isValid())
+                return;
+
+            if (out == null || out.position() == 0)
+            {
+                ByteBuffer direct = ByteBuffer.wrap(reply);
+                channel.write(direct);
+
+                if (!direct.hasRemaining())
+                    return;
+
+                reply = Arrays.copyOfRange(reply, direct.position(), reply.length);
+            }
+
+            if (out == null)
+                out = ByteBuffer.allocate(OUTPUT_BYTES);
+
+            if (out.remaining() < reply.length)
+                throw new IOException("Client is not reading its replies");
+
+            out.put(reply);
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        void flush() throws IOException
+        {
+            out.flip();
+            channel.write(out);
+            out.compact();
+
+            if (out.position() == 0)
+                key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+}
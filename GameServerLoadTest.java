@@ -0,0 +1,258 @@
+package application;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+// Load test for GameServer: opens two connections per game and keeps every game busy with
+// random legal moves. Each game has exactly one move in flight, and a finished game rejoins at
+// once. One selector thread drives all connections. The latency of a move is the time from
+// sending MOVE until its OK arrives; moves/s counts the OKs.
+//
+// Usage: GameServerLoadTest [name=value ...]
+//   host=localhost port=4444 games=10000 warmup=5 seconds=20 (measured) seed=1
+//
+// Every connection uses a file descriptor in this process and one in the server, so
+// 10,000 games need ulimit -n above 20,000 on both sides.
+public class GameServerLoadTest
+{
+    // Latencies in 10 µs buckets up to one second, the last bucket collecting anything slower
+    private static final int BUCKET_MICROS = 10;
+    private static final int BUCKETS = 100_000;
+
+    private final long[] histogram = new long[BUCKETS + 1];
+    private final Random random;
+
+    private Variant variant;
+    private boolean measuring;
+    private boolean stopping;
+    private long moves;
+    private long finishedGames;
+    private long maxNanos;
+
+    private GameServerLoadTest(long seed)
+    {
+        random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args)
+        {
+            int eq = arg.indexOf('=');
+
+            if (eq < 0)
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        String host = options.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(options.getOrDefault("port", "4444"));
+        int games = Integer.parseInt(options.getOrDefault("games", "10000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+        new GameServerLoadTest(seed).run(new InetSocketAddress(host, port), games, warmup, seconds);
+    }
+
+    private void run(InetSocketAddress address, int games, int warmup, int seconds) throws IOException
+    {
+        Selector selector = Selector.open();
+        Client[] clients = new Client[2 * games];
+        long start = System.nanoTime();
+
+        // Blocking connects: the server's accept backlog paces them
+        for (int i = 0; i < clients.length; i++)
+        {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+
+            clients[i] = new Client(channel);
+            channel.register(selector, SelectionKey.OP_READ, clients[i]);
+            clients[i].send("JOIN\n");
+        }
+
+        System.out.printf("%,d connections for %,d games in %.1f s%n", clients.length, games,
+                (System.nanoTime() - start) / 1e9);
+
+        long measureFrom = System.nanoTime() + warmup * 1_000_000_000L;
+        long measureUntil = measureFrom + seconds * 1_000_000_000L;
+
+        while (true)
+        {
+            long now = System.nanoTime();
+
+            if (!measuring && now >= measureFrom)
+                measuring = true;
+
+            if (now >= measureUntil)
+                break;
+
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+            while (keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+                ((Client) key.attachment()).read();
+            }
+        }
+
+        stopping = true;
+
+        for (Client client : clients)
+            client.channel.close();
+
+        selector.close();
+        report(games, seconds);
+    }
+
+    private void report(int games, int seconds)
+    {
+        System.out.printf("%,d concurrent games, %,d moves and %,d finished games in %d s%n", games, moves,
+                finishedGames, seconds);
+        System.out.printf("%,.0f moves/s, %,.0f games/s%n", (double) moves / seconds, (double) finishedGames / seconds);
+        System.out.printf("move latency: p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n", percentile(0.50),
+                percentile(0.99), percentile(0.999), maxNanos / 1e6);
+    }
+
+    // Upper edge of the bucket holding the given fraction of all moves, in milliseconds
+    private double percentile(double fraction)
+    {
+        long rank = (long) Math.ceil(fraction * moves);
+        long seen = 0;
+
+        for (int bucket = 0; bucket <= BUCKETS; bucket++)
+        {
+            seen += histogram[bucket];
+
+            if (seen >= rank)
+                return bucket == BUCKETS ? maxNanos / 1e6 : (bucket + 1) * BUCKET_MICROS / 1e3;
+        }
+
+        return 0;
+    }
+
+    private void record(long nanos)
+    {
+        if (!measuring)
+            return;
+
+        moves++;
+        maxNanos = Math.max(maxNanos, nanos);
+        histogram[(int) Math.min(BUCKETS, nanos / 1000 / BUCKET_MICROS)]++;
+    }
+
+    // One player: mirrors its game in a Position to pick legal moves
+    private final class Client
+    {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(256);
+
+        Position position;
+        boolean first;
+        long sentAt;
+
+        Client(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void read() throws IOException
+        {
+            if (stopping || channel.read(in) < 0)
+                return;
+
+            in.flip();
+            int start = 0;
+
+            for (int i = 0; i < in.limit(); i++)
+                if (in.get(i) == '\n')
+                {
+                    handle(new String(in.array(), start, i - start, StandardCharsets.US_ASCII));
+                    start = i + 1;
+                }
+
+            in.position(start);
+            in.compact();
+        }
+
+        void handle(String line) throws IOException
+        {
+            if (line.startsWith("HELLO "))
+            {
+                // Every connection gets the same board
+                if (variant != null)
+                    return;
+
+                String[] parts = line.split(" ");
+                variant = new Variant(Integer.parseInt(parts[2]), Integer.parseInt(parts[1]), Integer.parseInt(parts[3]));
+            }
+            else if (line.startsWith("START "))
+            {
+                position = new Position(variant);
+                first = line.equals("START 1");
+
+                if (first)
+                    move();
+            }
+            else if (line.equals("OK"))
+                record(System.nanoTime() - sentAt);
+            else if (line.startsWith("OPPONENT "))
+            {
+                int col = Integer.parseInt(line.substring(9)) - 1;
+                position.play(col);
+
+                // The game is over when the opponent's move won or filled the board; END follows
+                if (!position.wonWith(col) && !position.isFull())
+                    move();
+            }
+            else if (line.startsWith("END "))
+            {
+                // Both players hear END; count each game once
+                if (first && measuring)
+                    finishedGames++;
+
+                send("JOIN\n");
+            }
+            else
+                throw new IllegalStateException("Unexpected reply: " + line);
+        }
+
+        void move() throws IOException
+        {
+            int col;
+
+            do
+                col = random.nextInt(position.columns());
+            while (!position.canPlay(col));
+
+            position.play(col);
+            sentAt = System.nanoTime();
+            send("MOVE " + (col + 1) + "\n");
+        }
+
+        // Lines are tiny, so the socket buffer only fills if the server stops reading
+        void send(String line) throws IOException
+        {
+            ByteBuffer out = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+
+            while (out.hasRemaining())
+                channel.write(out);
+        }
+    }
+}
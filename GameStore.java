@@ -0,0 +1,433 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Append-only store of game records for one board variant. Games are numbered from 0 in the
+// order they are appended. Files in the directory are named games-000000.seg, games-000001.seg
+// and so on. Each segment starts with a 16-byte header (magic, version, rows, columns, connect),
+// followed by records of the form [move count byte][result byte][one column byte per move].
+// A segment is sealed once it reaches SEGMENT_BYTES.
+//
+// Appends collect in a buffer. sync() writes that buffer and then forces the file once, so one
+// fsync covers a whole batch of games; a background thread calls it every syncMillis. Reads map
+// the segments into memory. Sealed segments are mapped once. The open segment is remapped when
+// a read goes past the end of its last mapping. The byte offset of every record is kept in
+// memory and rebuilt on open by scanning the segments, so reading a game by id is a single
+// lookup. At four bytes per game the index stays small even for millions of games.
+public final class GameStore implements Closeable
+{
+    static final int MAGIC = 0x43344753;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final long SEGMENT_BYTES = 64L << 20;
+
+    private static final int BUFFER_BYTES = 64 << 10;
+
+    private final Path directory;
+    private final Variant variant;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+    private final ScheduledExecutorService syncer;
+
+    private FileChannel channel;
+    private long size;
+    private boolean dirty;
+
+    private GameStore(Path directory, Variant variant, long syncMillis)
+    {
+        this.directory = directory;
+        this.variant = variant;
+
+        syncer = syncMillis > 0 ? Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            Thread thread = new Thread(r, "connect4-game-store");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        if (syncer != null)
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Opens the store in the directory, creating it if needed. Appended games become durable at
+    // the next sync, at most syncMillis later; 0 leaves syncing to sync() and close(). A record
+    // cut short by a crash is dropped.
+    public static GameStore open(Path directory, Variant variant, long syncMillis) throws IOException
+    {
+        Files.createDirectories(directory);
+        GameStore store = new GameStore(directory, variant, syncMillis);
+
+        try
+        {
+            store.load();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            store.close();
+            throw e;
+        }
+
+        return store;
+    }
+
+    // -Dconnect4.games names the directory to record games in, or null to record nothing, and
+    // -Dconnect4.games.sync is the sync interval in milliseconds (default 1000)
+    public static GameStore fromProperties(Variant variant)
+    {
+        String directory = System.getProperty("connect4.games");
+
+        if (directory == null)
+            return null;
+
+        try
+        {
+            return open(Path.of(directory), variant, Long.getLong("connect4.games.sync", 1000));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot open game store " + directory, e);
+        }
+    }
+
+    public Variant variant()
+    {
+        return variant;
+    }
+
+    // Number of games appended, durable or not
+    public synchronized long size()
+    {
+        return size;
+    }
+
+    // Appends the game played so far in the position and returns its id
+    public long append(Position position) throws IOException
+    {
+        if (!position.variant().equals(variant))
+            throw new IllegalArgumentException("Game is on a " + position.variant() + " board, store is " + variant);
+
+        byte[] columns = new byte[position.moves()];
+
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = (byte) position.column(i);
+
+        return append(columns, columns.length, GameRecord.resultOf(position));
+    }
+
+    // Appends the first length columns as one game with the given GameRecord result
+    public synchronized long append(byte[] columns, int length, int result) throws IOException
+    {
+        if (length > variant.cells() || result < GameRecord.FIRST_PLAYER_WON || result > GameRecord.UNFINISHED)
+            throw new IllegalArgumentException("Invalid game record");
+
+        int bytes = 2 + length;
+        Segment segment = segments.get(segments.size() - 1);
+
+        if (segment.bytes + bytes > SEGMENT_BYTES)
+        {
+            writePending();
+            channel.force(false);
+            channel.close();
+            segment = createSegment(segments.size(), size);
+        }
+
+        if (pending.remaining() < bytes)
+            writePending();
+
+        segment.add((int) segment.bytes);
+        segment.bytes += bytes;
+
+        pending.put((byte) length).put((byte) result).put(columns, 0, length);
+        dirty = true;
+
+        return size++;
+    }
+
+    // Makes every game appended so far durable
+    public void sync() throws IOException
+    {
+        FileChannel synced;
+
+        synchronized (this)
+        {
+            if (!dirty)
+                return;
+
+            writePending();
+            dirty = false;
+            synced = channel;
+        }
+
+        // Forced outside the lock so that appends continue during the fsync
+        try
+        {
+            synced.force(false);
+        }
+        catch (ClosedChannelException e)
+        {
+            // Sealed or closed meanwhile, and forced when that happened
+        }
+    }
+
+    // Returns the game with the given id
+    public GameRecord read(long id) throws IOException
+    {
+        int offset;
+        ByteBuffer buffer;
+
+        synchronized (this)
+        {
+            if (id < 0 || id >= size)
+                throw new IllegalArgumentException("No game " + id + " in a store of " + size);
+
+            Segment segment = segments.get(segmentOf(id));
+            int index = (int) (id - segment.firstId);
+
+            offset = segment.offsets[index];
+            buffer = mapped(segment, segment.end(index));
+        }
+
+        byte[] columns = new byte[buffer.get(offset) & 0xFF];
+        buffer.get(offset + 2, columns);
+
+        return new GameRecord(variant, id, buffer.get(offset + 1), columns);
+    }
+
+    // Receives games from scan; the columns array is reused and only valid during the call
+    public interface Visitor
+    {
+        void visit(long id, int result, byte[] columns, int length);
+    }
+
+    // Visits every game from fromId on in order, reading the mapped segments sequentially.
+    // Games appended while the scan runs may or may not be visited.
+    public void scan(long fromId, Visitor visitor) throws IOException
+    {
+        byte[] columns = new byte[variant.cells()];
+        long id = Math.max(0, fromId);
+
+        while (true)
+        {
+            long end;
+            int offset;
+            ByteBuffer buffer;
+
+            // Only the position of the first record is needed; the rest follow one another
+            synchronized (this)
+            {
+                if (id >= size)
+                    return;
+
+                Segment segment = segments.get(segmentOf(id));
+
+                end = segment.firstId + segment.count;
+                offset = segment.offsets[(int) (id - segment.firstId)];
+                buffer = mapped(segment, segment.bytes);
+            }
+
+            for (; id < end; id++)
+            {
+                int length = buffer.get(offset) & 0xFF;
+                int result = buffer.get(offset + 1);
+
+                buffer.get(offset + 2, columns, 0, length);
+                visitor.visit(id, result, columns, length);
+                offset += 2 + length;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (syncer != null)
+            syncer.shutdownNow();
+
+        synchronized (this)
+        {
+            if (channel != null && channel.isOpen())
+            {
+                writePending();
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    private void syncQuietly()
+    {
+        try
+        {
+            sync();
+        }
+        catch (IOException e)
+        {
+            // The next sync or close retries, and reports the error if it persists
+        }
+    }
+
+    // Indexes the existing segments, drops a torn record at the end and opens the last segment
+    // for appending
+    private void load() throws IOException
+    {
+        for (int number = 0; Files.exists(segmentPath(number)); number++)
+        {
+            Path path = segmentPath(number);
+            Segment segment = new Segment(path, size);
+
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                checkHeader(path, buffer);
+
+                int offset = HEADER_BYTES;
+
+                while (offset + 2 <= buffer.limit() && offset + 2 + (buffer.get(offset) & 0xFF) <= buffer.limit())
+                {
+                    segment.add(offset);
+                    offset += 2 + (buffer.get(offset) & 0xFF);
+                }
+
+                segment.bytes = offset;
+            }
+
+            segments.add(segment);
+            size += segment.count;
+        }
+
+        if (segments.isEmpty())
+            createSegment(0, 0);
+        else
+        {
+            Segment last = segments.get(segments.size() - 1);
+            channel = FileChannel.open(last.path, StandardOpenOption.WRITE);
+            channel.truncate(last.bytes);
+            channel.position(last.bytes);
+        }
+    }
+
+    private void checkHeader(Path path, ByteBuffer buffer)
+    {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException(path + " is not a game store segment");
+
+        if (buffer.get(8) != variant.rows() || buffer.get(9) != variant.columns() || buffer.get(10) != variant.connect())
+            throw new IllegalArgumentException(path + " holds games for another board than " + variant);
+    }
+
+    private Segment createSegment(int number, long firstId) throws IOException
+    {
+        Path path = segmentPath(number);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).put((byte) variant.rows()).put((byte) variant.columns())
+                .put((byte) variant.connect()).rewind();
+
+        while (header.hasRemaining())
+            channel.write(header);
+
+        Segment segment = new Segment(path, firstId);
+        segment.bytes = HEADER_BYTES;
+        segments.add(segment);
+
+        return segment;
+    }
+
+    private void writePending() throws IOException
+    {
+        pending.flip();
+
+        while (pending.hasRemaining())
+            channel.write(pending);
+
+        pending.clear();
+    }
+
+    // A read-only view of the segment covering at least its first bytes, remapped if needed
+    private ByteBuffer mapped(Segment segment, long bytes) throws IOException
+    {
+        if (segment.map == null || segment.map.limit() < bytes)
+        {
+            // The bytes may still sit in the append buffer
+            if (segment == segments.get(segments.size() - 1))
+                writePending();
+
+            try (FileChannel file = FileChannel.open(segment.path, StandardOpenOption.READ))
+            {
+                segment.map = file.map(FileChannel.MapMode.READ_ONLY, 0, segment.bytes);
+            }
+        }
+
+        return segment.map.duplicate();
+    }
+
+    private int segmentOf(long id)
+    {
+        int low = 0, high = segments.size() - 1;
+
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+
+            if (segments.get(mid).firstId <= id)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+
+        return low;
+    }
+
+    private Path segmentPath(int number)
+    {
+        return directory.resolve(String.format("games-%06d.seg", number));
+    }
+
+    // One segment file: where its records start, and its mapping for reads
+    private static final class Segment
+    {
+        final Path path;
+        final long firstId;
+
+        int[] offsets = new int[1024];
+        int count;
+        long bytes;
+        MappedByteBuffer map;
+
+        Segment(Path path, long firstId)
+        {
+            this.path = path;
+            this.firstId = firstId;
+        }
+
+        void add(int offset)
+        {
+            if (count == offsets.length)
+                offsets = Arrays.copyOf(offsets, 2 * count);
+
+            offsets[count++] = offset;
+        }
+
+        // The end of the record with the given index
+        long end(int index)
+        {
+            return index + 1 < count ? offsets[index + 1] : bytes;
+        }
+    }
+}
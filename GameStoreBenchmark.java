@@ -0,0 +1,116 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Write, reopen, scan and random-read rates of the GameStore for random games. Every scanned
+// game is replayed and its stored result checked against the replay.
+// Usage: GameStoreBenchmark <empty directory> [games] [sync ms]
+public class GameStoreBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: GameStoreBenchmark <empty directory> [games] [sync ms]");
+            System.exit(1);
+        }
+
+        Path directory = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        long syncMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+
+        if (Files.exists(directory) && Files.list(directory).findAny().isPresent())
+            throw new IllegalArgumentException(directory + " is not empty");
+
+        Variant variant = Variant.STANDARD;
+        Random random = new Random(5);
+        long appendNanos = 0, moves = 0;
+        long start = System.nanoTime();
+
+        try (GameStore store = GameStore.open(directory, variant, syncMillis))
+        {
+            for (int i = 0; i < games; i++)
+            {
+                Position position = randomGame(variant, random);
+                moves += position.moves();
+
+                long before = System.nanoTime();
+                store.append(position);
+                appendNanos += System.nanoTime() - before;
+            }
+        }
+
+        long writeNanos = System.nanoTime() - start;
+        long bytes = 0;
+
+        try (var files = Files.list(directory))
+        {
+            for (Path file : (Iterable<Path>) files::iterator)
+                bytes += Files.size(file);
+        }
+
+        System.out.printf("wrote %,d games (%,d moves, %,.1f MB, %.1f bytes/game) in %.1f s including game generation%n",
+                games, moves, bytes / 1e6, (double) bytes / games, writeNanos / 1e9);
+        System.out.printf("append: %.0f ns/game, %,.0f games/s%n", (double) appendNanos / games, games / (appendNanos / 1e9));
+
+        start = System.nanoTime();
+
+        try (GameStore store = GameStore.open(directory, variant, 0))
+        {
+            System.out.printf("reopen and index %,d games: %.0f ms%n", store.size(), (System.nanoTime() - start) / 1e6);
+
+            long[] totals = new long[2];
+            start = System.nanoTime();
+            store.scan(0, (id, result, columns, length) -> totals[0] += length);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("scan: %,.0f games/s, %,.0f moves/s%n", games / seconds, totals[0] / seconds);
+
+            start = System.nanoTime();
+            store.scan(0, (id, result, columns, length) ->
+            {
+                if (GameRecord.resultOf(GameRecord.replay(variant, columns, length)) != result)
+                    throw new IllegalStateException("Game " + id + " does not replay to its result");
+
+                totals[1]++;
+            });
+            seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("scan and replay: %,.0f games/s, %,d games verified%n", games / seconds, totals[1]);
+
+            int reads = Math.min(games, 200_000);
+            long sink = 0;
+            start = System.nanoTime();
+
+            for (int i = 0; i < reads; i++)
+                sink += store.read(random.nextInt(games)).position().key();
+
+            seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("random read and replay: %,.0f games/s%s%n", reads / seconds, sink == 42 ? " " : "");
+        }
+    }
+
+    // Random legal moves until somebody wins or the board is full
+    private static Position randomGame(Variant variant, Random random)
+    {
+        Position position = new Position(variant);
+
+        while (!position.isFull())
+        {
+            int col = random.nextInt(variant.columns());
+
+            if (!position.canPlay(col))
+                continue;
+
+            position.play(col);
+
+            if (position.wonWith(col))
+                break;
+        }
+
+        return position;
+    }
+}
@@ -0,0 +1,419 @@
+package application;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Monte Carlo tree search with UCT selection, as an alternative to the alpha-beta search. The
+// tree lives in parallel primitive arrays indexed by node, sized once up front, so a search of
+// millions of nodes allocates nothing and leaves nothing for the garbage collector. The children
+// of a node are consecutive, from firstChild for childCount nodes. A node's value is the sum of
+// its results for the player who moved into it, counting a win 2, a draw 1 and a loss 0.
+//
+// Rollouts play random moves on one Position per thread and undo them afterwards. A move that
+// wins at once is always played. With more threads, all of them grow the same tree. Visits are
+// updated with atomic adds, and each thread adds a virtual loss to the nodes on its path until
+// its result is in, so the other threads spread out over the tree instead of all following the
+// same path. A node is expanded by the thread that claims it first; the others roll out from it
+// meanwhile. Once the arrays are full, the tree stops growing and rollouts go on from its leaves.
+public class MonteCarlo
+{
+    // Per node: 4 bytes each for firstChild, visits and value, and 1 each for childCount, move
+    // and terminal
+    private static final int NODE_BYTES = 15;
+
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+
+    private static final byte OPEN = 0;
+    private static final byte WIN = 1;
+    private static final byte DRAW = 2;
+
+    private static final double EXPLORATION = 1.0;
+    private static final int VIRTUAL_LOSS = 1;
+
+    // Clock reads every this many iterations per thread
+    private static final int CLOCK_INTERVAL = 256;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int capacity;
+    private final int[] firstChild;
+    private final int[] visits;
+    private final int[] value;
+    private final byte[] childCount;
+    private final byte[] move;
+    private final byte[] terminal;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger iterationsLeft = new AtomicInteger();
+
+    private final int iterations;
+    private final int threads;
+    private final ExecutorService helpers;
+
+    private long deadline;
+    private long rollouts;
+    private int depthReached;
+    private int score;
+    private volatile boolean cancelled;
+
+    // Searches up to iterations rollouts per move on threads threads, in a tree of at most
+    // megabytes of nodes
+    public MonteCarlo(int iterations, int threads, int megabytes)
+    {
+        this.iterations = iterations;
+        this.threads = threads;
+
+        capacity = (int) Math.min(Integer.MAX_VALUE - 16, (long) megabytes * 1024 * 1024 / NODE_BYTES);
+        firstChild = new int[capacity];
+        visits = new int[capacity];
+        value = new int[capacity];
+        childCount = new byte[capacity];
+        move = new byte[capacity];
+        terminal = new byte[capacity];
+
+        helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, r ->
+        {
+            Thread thread = new Thread(r, "connect4-mcts");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // Rollouts of the last search, across all threads
+    public long rollouts()
+    {
+        return rollouts;
+    }
+
+    // Deepest path from the root in the last search's tree
+    public int depthReached()
+    {
+        return depthReached;
+    }
+
+    // Expected result of the chosen move in thousandths, from -1000 for a sure loss to 1000 for
+    // a sure win for the side to move
+    public int score()
+    {
+        return score;
+    }
+
+    // Tree nodes used by the last search
+    public int nodes()
+    {
+        return Math.min(size.get(), capacity);
+    }
+
+    // Makes a running search return early with the best move so far, and every later one until
+    // resume()
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public void resume()
+    {
+        cancelled = false;
+    }
+
+    public void shutdown()
+    {
+        if (helpers != null)
+            helpers.shutdownNow();
+    }
+
+    // Returns the most visited column after the iteration budget is spent or the deadline
+    // (System.nanoTime) passes, or -1 if the board is full
+    public int bestMove(Position root, long deadline)
+    {
+        if (root.isFull())
+            return -1;
+
+        this.deadline = deadline;
+        size.set(1);
+        iterationsLeft.set(iterations);
+        init(0, -1);
+
+        List<Future<Worker>> futures = new ArrayList<>();
+
+        for (int i = 1; i < threads; i++)
+        {
+            Worker helper = new Worker(new Position(root), i);
+            futures.add(helpers.submit(() ->
+            {
+                helper.run();
+                return helper;
+            }));
+        }
+
+        Worker main = new Worker(new Position(root), 0);
+        main.run();
+
+        rollouts = main.rollouts;
+        depthReached = main.depthReached;
+
+        try
+        {
+            for (Future<Worker> future : futures)
+            {
+                Worker helper = future.get();
+                rollouts += helper.rollouts;
+                depthReached = Math.max(depthReached, helper.depthReached);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        int best = -1;
+        int first = firstChild[0];
+
+        for (int child = first; first >= 0 && child < first + childCount[0]; child++)
+            if (best == -1 || visits[child] > visits[best])
+                best = child;
+
+        // Not even the root was expanded: any legal move
+        if (best == -1)
+        {
+            score = 0;
+
+            for (int col : root.variant().columnOrder)
+                if (root.canPlay(col))
+                    return col;
+        }
+
+        score = visits[best] == 0 ? 0 : (int) Math.round(1000.0 * (value[best] - visits[best]) / visits[best]);
+        return move[best];
+    }
+
+    private void init(int node, int col)
+    {
+        firstChild[node] = UNEXPANDED;
+        visits[node] = 0;
+        value[node] = 0;
+        childCount[node] = 0;
+        move[node] = (byte) col;
+        terminal[node] = OPEN;
+    }
+
+    // One search thread: its own position, path and random numbers
+    private final class Worker
+    {
+        private final Position position;
+        private final int rootMoves;
+        private final int[] path;
+        private final int[] played;
+        private final int[] legal;
+
+        private long random;
+        private long rollouts;
+        private int depthReached;
+
+        Worker(Position position, int index)
+        {
+            this.position = position;
+            rootMoves = position.moves();
+            path = new int[position.variant().cells() - rootMoves + 1];
+            played = new int[position.variant().cells() - rootMoves];
+            legal = new int[position.columns()];
+            random = 0x9E3779B97F4A7C15L * (index + 1);
+        }
+
+        void run()
+        {
+            while (!cancelled && iterationsLeft.getAndDecrement() > 0)
+            {
+                iterate();
+
+                if (++rollouts % CLOCK_INTERVAL == 0 && System.nanoTime() > deadline)
+                    break;
+            }
+        }
+
+        // Select down to a leaf, expand it, roll out and back the result up the path
+        private void iterate()
+        {
+            int node = 0;
+            int length = 0;
+            int winner;
+
+            while (true)
+            {
+                INTS.getAndAdd(visits, node, VIRTUAL_LOSS);
+                path[length++] = node;
+
+                if (terminal[node] != OPEN)
+                {
+                    winner = terminal[node] == DRAW ? -1 : (position.moves() - 1) & 1;
+                    break;
+                }
+
+                int first = (int) INTS.getAcquire(firstChild, node);
+
+                if (first == UNEXPANDED && (node == 0 || visits[node] > VIRTUAL_LOSS))
+                    first = expand(node);
+
+                if (first < 0)
+                {
+                    winner = rollout();
+                    break;
+                }
+
+                node = select(node, first);
+                position.play(move[node]);
+            }
+
+            depthReached = Math.max(depthReached, length - 1);
+
+            // Results count for the player who moved into each node; the virtual loss turns
+            // into a real visit
+            for (int i = length - 1; i >= 0; i--)
+            {
+                int mover = (rootMoves + i - 1) & 1;
+                INTS.getAndAdd(visits, path[i], 1 - VIRTUAL_LOSS);
+                INTS.getAndAdd(value, path[i], winner == -1 ? 1 : winner == mover ? 2 : 0);
+
+                if (i > 0)
+                    position.undo(move[path[i]]);
+            }
+        }
+
+        // UCT: the child with the best mean result plus an exploration bonus that shrinks with
+        // its visits; unvisited children first, center-first
+        private int select(int node, int first)
+        {
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = first;
+            double bestScore = Double.NEGATIVE_INFINITY;
+
+            for (int child = first; child < first + childCount[node]; child++)
+            {
+                int n = visits[child];
+
+                if (n == 0)
+                    return child;
+
+                double score = value[child] / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+
+                if (score > bestScore)
+                {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        // Adds the node's children and returns the first, or a negative value if another thread
+        // got there first or the tree is full. A move that wins at once is the only child.
+        private int expand(int node)
+        {
+            if (!INTS.compareAndSet(firstChild, node, UNEXPANDED, EXPANDING))
+                return -1;
+
+            int count = 0;
+
+            for (int col : position.variant().columnOrder)
+                if (position.canPlay(col))
+                {
+                    if (position.isWinningMove(col))
+                    {
+                        legal[0] = col;
+                        count = 1;
+                        break;
+                    }
+
+                    legal[count++] = col;
+                }
+
+            int first = size.get() + count <= capacity ? size.getAndAdd(count) : capacity;
+
+            if (first + count > capacity)
+            {
+                INTS.setRelease(firstChild, node, UNEXPANDED);
+                return -1;
+            }
+
+            for (int i = 0; i < count; i++)
+            {
+                int col = legal[i];
+                init(first + i, col);
+
+                if (position.isWinningMove(col))
+                    terminal[first + i] = WIN;
+                else if (position.moves() + 1 == position.variant().cells())
+                    terminal[first + i] = DRAW;
+            }
+
+            childCount[node] = (byte) count;
+            INTS.setRelease(firstChild, node, first);
+
+            return first;
+        }
+
+        // Plays random moves, or a winning one when there is one, until the game ends, then takes
+        // them back; returns the winner or -1 for a draw
+        private int rollout()
+        {
+            int count = 0;
+            int winner = -1;
+
+            while (!position.isFull())
+            {
+                int choices = 0;
+                int col = -1;
+
+                for (int c = 0; c < legal.length; c++)
+                    if (position.canPlay(c))
+                    {
+                        if (position.isWinningMove(c))
+                        {
+                            col = c;
+                            break;
+                        }
+
+                        legal[choices++] = c;
+                    }
+
+                if (col != -1)
+                    winner = position.currentPlayer();
+                else
+                    col = legal[nextInt(choices)];
+
+                position.play(col);
+                played[count++] = col;
+
+                if (winner != -1)
+                    break;
+            }
+
+            while (count > 0)
+                position.undo(played[--count]);
+
+            return winner;
+        }
+
+        // xorshift: no allocation and no shared state
+        private int nextInt(int bound)
+        {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+
+            return (int) ((random >>> 33) * bound >>> 31);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package application;
+
+// Round trips between GameRecord.moveList and Position.fromMoves: every record must replay to
+// the position it was written from. Covers one-move records, surrounding spaces, and boards
+// with more than nine columns, where the moves are numbers separated by spaces. Exits with an
+// error at the first record that does not come back.
+//
+// Usage: MoveListCheck
+public class MoveListCheck
+{
+    public static void main(String[] args)
+    {
+        Variant wide = new Variant(8, 12, 4);
+        Variant nine = new Variant(6, 9, 4);
+
+        check(Variant.STANDARD, 3, 3, 4, 2);
+        check(Variant.STANDARD, 6);
+        check(nine, 8);
+        check(wide, 11);
+        check(wide, 0);
+        check(wide, 9, 10, 11, 0, 3, 9);
+
+        Position padded = Position.fromMoves(" 44 ");
+
+        if (padded.moves() != 2)
+            throw new IllegalStateException("\" 44 \" replays as " + padded.moves() + " moves");
+
+        System.out.println("All move lists round-trip");
+    }
+
+    private static void check(Variant variant, int... moves)
+    {
+        byte[] columns = new byte[moves.length];
+
+        for (int i = 0; i < moves.length; i++)
+            columns[i] = (byte) moves[i];
+
+        GameRecord record = new GameRecord(variant, 0, GameRecord.UNFINISHED, columns);
+        Position replayed = Position.fromMoves(variant, record.moveList());
+        Position expected = record.position();
+
+        if (replayed.moves() != expected.moves() || replayed.key() != expected.key())
+            throw new IllegalStateException(record + " on " + variant + " replays as " + replayed.moves() + " moves");
+    }
+}
@@ -0,0 +1,312 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// Leaf evaluation by an n-tuple network, trained offline by NTupleTrainer. Each tuple is a fixed
+// set of cells; the states of its cells (empty, first player, second player) form an index into
+// the tuple's table of weights, and the network's value is the sum of one weight per tuple. Each
+// tuple is also read through its mirror image with the same table, so the value is symmetric.
+// There is a separate set of tables for each side to move.
+//
+// Evaluating is table lookups on the bitboards and allocates nothing. Rather than reading a
+// tuple's cells one by one, each column the tuple touches has a small table from that column's
+// bits to their base-3 digits in the tuple's index, so a tuple costs two lookups per column. The
+// mirror image reads the same tables with the columns in reverse order.
+//
+// The value estimates the outcome for the first player: tanh of the sum runs from -1 for a sure
+// loss to 1 for a sure win. Leaves score the sum itself, scaled, which orders positions the same
+// way without the tanh.
+//
+// Weight file layout: a 28-byte header (magic, version, rows, columns, connect, tuples, tuple
+// length), each tuple's cells as ints, then the weights as floats, side to move by side to move,
+// tuple by tuple. Networks cover compact boards only.
+public class NTupleNetwork implements Evaluator
+{
+    static final int MAGIC = 0x43344E54;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 28;
+
+    // Above any scaled sum a network can reach in practice
+    static final int WIN_SCORE = 100_000;
+    private static final float SCALE = 1000;
+
+    private final Variant variant;
+    private final int tuples;
+    private final int length;
+    private final int states;
+
+    // Tuple t's cells as bit positions at [t * length, (t + 1) * length), as in the file
+    private final int[] cells;
+
+    // Tuple t touches the columns of spans [spanStart[t], spanStart[t + 1]). Span s is column
+    // spanColumn[s], and digits[s << rows | bits] is what a column with those bits for one player
+    // adds to the index; twice that for the other player.
+    private final int rows;
+    private final int columnMask;
+    private final int[] spanStart;
+    private final int[] spanShift;
+    private final int[] mirrorShift;
+    private final int[] digits;
+
+    // Indexed by (side to move * tuples + tuple) * states + tuple index
+    final float[] weights;
+
+    private NTupleNetwork(Variant variant, int tuples, int length, int[] cells, float[] weights)
+    {
+        if (!variant.compact)
+            throw new IllegalArgumentException("N-tuple networks need a compact board");
+
+        this.variant = variant;
+        this.tuples = tuples;
+        this.length = length;
+        this.cells = cells;
+        this.weights = weights;
+        states = states(length);
+
+        if (weights.length != 2 * tuples * states)
+            throw new IllegalArgumentException("Expected " + 2 * tuples * states + " weights, got " + weights.length);
+
+        rows = variant.rows();
+        columnMask = (1 << rows) - 1;
+        spanStart = new int[tuples + 1];
+
+        int[] spanColumns = new int[tuples * length];
+        int spans = 0;
+
+        for (int t = 0; t < tuples; t++)
+        {
+            spanStart[t] = spans;
+
+            for (int col = 0; col < variant.columns(); col++)
+                for (int k = t * length; k < (t + 1) * length; k++)
+                    if (cells[k] / variant.columnBits == col)
+                    {
+                        spanColumns[spans++] = col;
+                        break;
+                    }
+        }
+
+        spanStart[tuples] = spans;
+        spanShift = new int[spans];
+        mirrorShift = new int[spans];
+        digits = new int[spans << rows];
+
+        for (int t = 0; t < tuples; t++)
+            for (int span = spanStart[t]; span < spanStart[t + 1]; span++)
+            {
+                int col = spanColumns[span];
+                spanShift[span] = col * variant.columnBits;
+                mirrorShift[span] = (variant.columns() - 1 - col) * variant.columnBits;
+
+                for (int k = 0; k < length; k++)
+                {
+                    int cell = cells[t * length + k];
+
+                    if (cell / variant.columnBits != col)
+                        continue;
+
+                    // The tuple's first cell is its index's most significant digit
+                    int digit = states(length - 1 - k);
+
+                    for (int bits = 0; bits <= columnMask; bits++)
+                        if ((bits >>> cell % variant.columnBits & 1) != 0)
+                            digits[span << rows | bits] += digit;
+                }
+            }
+    }
+
+    // A network of zero weights over tuples of random connected cells: each cell after the first
+    // neighbors, in any of the eight directions, one already taken
+    public static NTupleNetwork random(Variant variant, int tuples, int length, Random random)
+    {
+        int[] cells = new int[tuples * length];
+        int[] rowOf = new int[length];
+        int[] colOf = new int[length];
+
+        for (int t = 0; t < tuples; t++)
+        {
+            rowOf[0] = random.nextInt(variant.rows());
+            colOf[0] = random.nextInt(variant.columns());
+            int size = 1;
+
+            while (size < length)
+            {
+                int from = random.nextInt(size);
+                int row = rowOf[from] + random.nextInt(3) - 1;
+                int col = colOf[from] + random.nextInt(3) - 1;
+                boolean taken = row < 0 || row >= variant.rows() || col < 0 || col >= variant.columns();
+
+                for (int i = 0; i < size && !taken; i++)
+                    taken = rowOf[i] == row && colOf[i] == col;
+
+                if (!taken)
+                {
+                    rowOf[size] = row;
+                    colOf[size] = col;
+                    size++;
+                }
+            }
+
+            for (int i = 0; i < length; i++)
+                cells[t * length + i] = colOf[i] * variant.columnBits + rowOf[i];
+        }
+
+        return new NTupleNetwork(variant, tuples, length, cells, new float[2 * tuples * states(length)]);
+    }
+
+    public static NTupleNetwork load(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IllegalArgumentException("Not an n-tuple network file");
+
+            int rows = buffer.getInt(8);
+            int columns = buffer.getInt(12);
+            int connect = buffer.getInt(16);
+            Variant standard = Variant.STANDARD;
+            Variant variant = rows == standard.rows() && columns == standard.columns() && connect == standard.connect()
+                    ? standard : new Variant(rows, columns, connect);
+            int tuples = buffer.getInt(20);
+            int length = buffer.getInt(24);
+            int states = states(length);
+
+            if (buffer.capacity() != HEADER_BYTES + 4L * tuples * length + 8L * tuples * states)
+                throw new IllegalArgumentException("N-tuple network file is truncated");
+
+            int[] cells = new int[tuples * length];
+            float[] weights = new float[2 * tuples * states];
+
+            buffer.position(HEADER_BYTES);
+            buffer.asIntBuffer().get(cells);
+            buffer.position(HEADER_BYTES + 4 * cells.length);
+            buffer.asFloatBuffer().get(weights);
+
+            return new NTupleNetwork(variant, tuples, length, cells, weights);
+        }
+    }
+
+    public void save(Path path) throws IOException
+    {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + 4 * cells.length + 4 * weights.length);
+        out.putInt(MAGIC).putInt(VERSION).putInt(variant.rows()).putInt(variant.columns())
+                .putInt(variant.connect()).putInt(tuples).putInt(length);
+        out.asIntBuffer().put(cells);
+        out.position(HEADER_BYTES + 4 * cells.length);
+        out.asFloatBuffer().put(weights);
+        out.position(0);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (out.hasRemaining())
+                channel.write(out);
+        }
+    }
+
+    // Indices of a tuple's table: three states per cell
+    private static int states(int length)
+    {
+        int states = 1;
+
+        for (int i = 0; i < length; i++)
+            states *= 3;
+
+        return states;
+    }
+
+    public Variant variant()
+    {
+        return variant;
+    }
+
+    public int tuples()
+    {
+        return tuples;
+    }
+
+    // Weight indices read by a position, two per tuple
+    public int features()
+    {
+        return 2 * tuples;
+    }
+
+    // A won position scores WIN_SCORE; otherwise the scaled sum, from the player's point of view
+    @Override
+    public int evaluate(Position position, int player)
+    {
+        int last = 1 - position.currentPlayer();
+
+        if (position.isWin(last))
+            return last == player ? WIN_SCORE : -WIN_SCORE;
+
+        if (position.isFull())
+            return 0;
+
+        float sum = SCALE * sum(position.board(0), position.board(1), position.moves() & 1);
+        int score = (int) Math.max(1 - WIN_SCORE, Math.min(WIN_SCORE - 1, sum));
+        return player == 0 ? score : -score;
+    }
+
+    // The network's sum for the bitboards with the given side to move
+    public float sum(long first, long second, int toMove)
+    {
+        float sum = 0;
+        int base = toMove * tuples * states;
+
+        for (int t = 0; t < tuples; t++, base += states)
+        {
+            int index = 0;
+            int mirrorIndex = 0;
+
+            for (int span = spanStart[t]; span < spanStart[t + 1]; span++)
+            {
+                int table = span << rows;
+                index += digits[table | (int) (first >>> spanShift[span]) & columnMask]
+                        + 2 * digits[table | (int) (second >>> spanShift[span]) & columnMask];
+                mirrorIndex += digits[table | (int) (first >>> mirrorShift[span]) & columnMask]
+                        + 2 * digits[table | (int) (second >>> mirrorShift[span]) & columnMask];
+            }
+
+            sum += weights[base + index] + weights[base + mirrorIndex];
+        }
+
+        return sum;
+    }
+
+    // Fills features with the weight indices for the bitboards, for training; returns their sum
+    float features(long first, long second, int toMove, int[] features)
+    {
+        float sum = 0;
+        int base = toMove * tuples * states;
+
+        for (int t = 0; t < tuples; t++, base += states)
+        {
+            int index = 0;
+            int mirrorIndex = 0;
+
+            for (int span = spanStart[t]; span < spanStart[t + 1]; span++)
+            {
+                int table = span << rows;
+                index += digits[table | (int) (first >>> spanShift[span]) & columnMask]
+                        + 2 * digits[table | (int) (second >>> spanShift[span]) & columnMask];
+                mirrorIndex += digits[table | (int) (first >>> mirrorShift[span]) & columnMask]
+                        + 2 * digits[table | (int) (second >>> mirrorShift[span]) & columnMask];
+            }
+
+            features[2 * t] = base + index;
+            features[2 * t + 1] = base + mirrorIndex;
+            sum += weights[base + index] + weights[base + mirrorIndex];
+        }
+
+        return sum;
+    }
+}
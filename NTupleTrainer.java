@@ -0,0 +1,209 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Trains an n-tuple network offline by temporal-difference learning in self-play. Both sides
+// play the network's choice: the move into the position it values best for the mover, or a
+// winning move when there is one, with a random move now and then to explore. After each move
+// the value of the position the mover faced is pulled toward the value of the position after
+// it, or toward the result once the game is over (TD(0) on the positions after each move). The
+// steps after random moves are skipped, as those say nothing about good play. The learning and
+// exploration rates decay over the run.
+//
+// An existing file is trained further; otherwise training starts from a new network. The file
+// is written every 100,000 games, so a long run can be stopped and continued.
+//
+// Usage: NTupleTrainer <file> [games] [tuples] [tuple length] [seed]
+public class NTupleTrainer
+{
+    private static final float ALPHA_START = 0.004f;
+    private static final float ALPHA_END = 0.001f;
+    private static final double EPSILON_START = 0.2;
+    private static final double EPSILON_END = 0.05;
+    private static final int CHECKPOINT = 100_000;
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: NTupleTrainer <file> [games] [tuples] [tuple length] [seed]");
+            System.exit(1);
+        }
+
+        Path path = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int tuples = args.length > 2 ? Integer.parseInt(args[2]) : 70;
+        int length = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        Random random = new Random(seed);
+        NTupleNetwork network = Files.exists(path) ? NTupleNetwork.load(path)
+                : NTupleNetwork.random(Variant.STANDARD, tuples, length, random);
+
+        System.out.printf("Training %s: %d tuples, %,d weights, %,d games%n", path, network.tuples(),
+                network.weights.length, games);
+
+        new NTupleTrainer(network, random).train(games, path);
+    }
+
+    private final NTupleNetwork network;
+    private final float[] weights;
+    private final Random random;
+
+    // Weight indices of the position before the last move and of the one after it
+    private int[] previous;
+    private int[] current;
+    private final int[] legal;
+
+    private long wins;
+    private long draws;
+
+    private NTupleTrainer(NTupleNetwork network, Random random)
+    {
+        this.network = network;
+        this.random = random;
+
+        weights = network.weights;
+        previous = new int[network.features()];
+        current = new int[network.features()];
+        legal = new int[network.variant().columns()];
+    }
+
+    private void train(int games, Path path) throws IOException
+    {
+        long start = System.nanoTime();
+        int lastReport = 0;
+
+        for (int game = 1; game <= games; game++)
+        {
+            double progress = (double) game / games;
+            float alpha = (float) (ALPHA_START * Math.pow(ALPHA_END / ALPHA_START, progress));
+            double epsilon = EPSILON_START + (EPSILON_END - EPSILON_START) * progress;
+
+            play(alpha, epsilon);
+
+            if (game % CHECKPOINT == 0 || game == games)
+            {
+                network.save(path);
+
+                // The rates cover the games since the last report, fewer than CHECKPOINT at the end
+                double seconds = (System.nanoTime() - start) / 1e9;
+                int played = game - lastReport;
+                System.out.printf("%,d games in %.0f s (%.0f games/s): first player won %.1f%%, drew %.1f%%%n", game,
+                        seconds, game / seconds, 100.0 * wins / played, 100.0 * draws / played);
+
+                lastReport = game;
+                wins = 0;
+                draws = 0;
+            }
+        }
+    }
+
+    // One self-play game, learning as it goes
+    private void play(float alpha, double epsilon)
+    {
+        Position position = new Position(network.variant());
+        float previousValue = 0;
+        boolean first = true;
+
+        while (true)
+        {
+            int mover = position.currentPlayer();
+            boolean explored = false;
+            int col = winningMove(position);
+
+            if (col == -1)
+            {
+                explored = random.nextDouble() < epsilon;
+                col = explored ? randomMove(position) : bestMove(position);
+            }
+
+            position.play(col);
+
+            boolean won = position.wonWith(col);
+            float target;
+
+            if (won || position.isFull())
+            {
+                target = won ? (mover == 0 ? 1 : -1) : 0;
+
+                if (won && mover == 0)
+                    wins++;
+                else if (!won)
+                    draws++;
+            }
+            else
+                target = value(position, current);
+
+            // Pull the value before the move toward the value after it, through the tanh
+            if (!first && !explored)
+            {
+                float step = alpha * (target - previousValue) * (1 - previousValue * previousValue);
+
+                for (int index : previous)
+                    weights[index] += step;
+            }
+
+            if (won || position.isFull())
+                return;
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+            previousValue = target;
+            first = false;
+        }
+    }
+
+    private float value(Position position, int[] features)
+    {
+        return (float) Math.tanh(network.features(position.board(0), position.board(1), position.moves() & 1, features));
+    }
+
+    private int winningMove(Position position)
+    {
+        for (int col = 0; col < legal.length; col++)
+            if (position.canPlay(col) && position.isWinningMove(col))
+                return col;
+
+        return -1;
+    }
+
+    private int randomMove(Position position)
+    {
+        int count = 0;
+
+        for (int col = 0; col < legal.length; col++)
+            if (position.canPlay(col))
+                legal[count++] = col;
+
+        return legal[random.nextInt(count)];
+    }
+
+    // The move into the position the network values best for the mover
+    private int bestMove(Position position)
+    {
+        int sign = position.currentPlayer() == 0 ? 1 : -1;
+        int best = -1;
+        float bestValue = Float.NEGATIVE_INFINITY;
+
+        for (int col = 0; col < legal.length; col++)
+            if (position.canPlay(col))
+            {
+                position.play(col);
+                float value = position.isFull() ? 0 : sign * network.sum(position.board(0), position.board(1), position.moves() & 1);
+                position.undo(col);
+
+                if (value > bestValue)
+                {
+                    bestValue = value;
+                    best = col;
+                }
+            }
+
+        return best;
+    }
+}
@@ -0,0 +1,124 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Read-only opening book mapped straight from disk, so opening it costs nothing up front and
+// every JVM using the same file shares its pages. Layout: a 16-byte header (magic, version,
+// plies, count) followed by count 12-byte records sorted by key. A record is a long holding
+// the position's canonical key shifted left by three bits plus the best column, then an int
+// score from the side to move's point of view. Of a position and its mirror image only the
+// canonical one is stored, with its own best column; callers mirror the column back.
+// Version 1 books stored both and are rejected.
+public class OpeningBook
+{
+    static final int MAGIC = 0x43344B42;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int plies;
+    private final int count;
+
+    private OpeningBook(MappedByteBuffer buffer)
+    {
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not an opening book file");
+
+        plies = buffer.getInt(8);
+        count = buffer.getInt(12);
+
+        if (buffer.capacity() < HEADER_BYTES + (long) count * RECORD_BYTES)
+            throw new IllegalArgumentException("Opening book file is truncated");
+    }
+
+    public static OpeningBook open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Positions with at most this many stones are covered
+    public int plies()
+    {
+        return plies;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    // Returns the record index for the canonical position key, or -1 if the book does not have it
+    public int find(long key)
+    {
+        int low = 0, high = count - 1;
+
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            long found = buffer.getLong(HEADER_BYTES + mid * RECORD_BYTES) >>> 3;
+
+            if (found < key)
+                low = mid + 1;
+            else if (found > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    public int move(int index)
+    {
+        return (int) (buffer.getLong(HEADER_BYTES + index * RECORD_BYTES) & 7);
+    }
+
+    public int score(int index)
+    {
+        return buffer.getInt(HEADER_BYTES + index * RECORD_BYTES + 8);
+    }
+
+    // Writes a book; keys must be distinct and are sorted here
+    static void write(Path path, int plies, long[] keys, int[] moves, int[] scores) throws IOException
+    {
+        int count = keys.length;
+        long[] records = new long[count];
+
+        for (int i = 0; i < count; i++)
+            records[i] = keys[i] << 3 | moves[i];
+
+        Integer[] order = new Integer[count];
+
+        for (int i = 0; i < count; i++)
+            order[i] = i;
+
+        Arrays.sort(order, (a, b) -> Long.compare(records[a], records[b]));
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + count * RECORD_BYTES);
+        out.putInt(MAGIC).putInt(VERSION).putInt(plies).putInt(count);
+
+        for (int i : order)
+            out.putLong(records[i]).putInt(scores[i]);
+
+        out.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (out.hasRemaining())
+                channel.write(out);
+        }
+    }
+}
@@ -1,25 +1,30 @@
 package application;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
-import javafx.scene.layout.Background;
-import javafx.scene.layout.BackgroundFill;
-import javafx.scene.layout.GridPane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
 import javafx.stage.Stage;
 
-public class PVP <T extends Circle> extends Application
+public class PVP extends Application
 {
 
-    private static final int ROWS = 6;
-    private static final int COLUMNS = 7;
-    private static final double CELL_SIZE = 100;
+    // -Dconnect4.rows, -Dconnect4.columns and -Dconnect4.connect pick the board
+    private static final Variant VARIANT = Variant.fromProperties();
+    private static final int ROWS = VARIANT.rows();
+    private static final int COLUMNS = VARIANT.columns();
+    private static final double CELL_SIZE = Math.min(100, 700.0 / Math.max(ROWS, COLUMNS));
 
-    private T[][] board;
+    private BoardView board;
     private boolean player1Turn;
+    private boolean gameOver;
+    private final Position position = new Position(VARIANT);
+    private final GameStore gameStore = GameStore.fromProperties(VARIANT);
+    private boolean recorded;
 
     public static void main(String[] args)
     {
@@ -29,103 +34,62 @@ public class PVP <T extends Circle> extends Application
     @Override
     public void start(Stage primaryStage)
     {
-        GridPane grid = new GridPane();
-        grid.setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
-        
-        board = (T[][])new Circle[ROWS][COLUMNS];
-        for (int row = 0; row < ROWS; row++)
-            for (int col = 0; col < COLUMNS; col++)
-            {
-                T circle = (T)new Circle(CELL_SIZE / 2, Color.WHITE);
-                board[row][col] = circle;
-                grid.add(circle, col, row);
-            }
+        board = new BoardView(VARIANT, CELL_SIZE);
 
         player1Turn = true;
 
-        grid.setOnMouseClicked(e ->
+        board.setOnColumnClicked(col ->
         {
-            int col = (int) (e.getX() / CELL_SIZE);
-            
-            if (col >= 0 && col < COLUMNS)
-                for (int row = ROWS - 1; row >= 0; row--)
-                    if (board[row][col].getFill() == Color.WHITE)
-                    {
-                        board[row][col].setFill(player1Turn ? Color.RED : Color.YELLOW);
-                        if (isWin(row, col))
-                        {
-                            showWinner(player1Turn ? "Player 1" : "Player 2");
-                            break;
-                        }
-                        
-                        player1Turn = !player1Turn;
-                        break;
-                    }
+            if (gameOver || !position.canPlay(col))
+                return;
+
+            // The position decides where the disc lands; the board only shows it falling there
+            int row = ROWS - 1 - position.height(col);
+            String player = player1Turn ? "Player 1" : "Player 2";
+            position.play(col);
+
+            gameOver = position.wonWith(col);
+            board.drop(col, row, player1Turn ? Color.RED : Color.YELLOW, gameOver ? () -> showWinner(player) : null);
+            player1Turn = !player1Turn;
         });
 
-        Scene scene = new Scene(grid, COLUMNS * CELL_SIZE, ROWS * CELL_SIZE);
+        Scene scene = new Scene(board, COLUMNS * CELL_SIZE, ROWS * CELL_SIZE, Color.BLACK);
         primaryStage.setTitle("Connect 4");
         primaryStage.setScene(scene);
-        primaryStage.setResizable(false);
         primaryStage.show();
     }
 
-    private boolean isWin(int row, int col)
+    @Override
+    public void stop() throws IOException
     {
-        Color playerColor = (Color) board[row][col].getFill();
+        recordGame();
 
-        // Check horizontal
-        int count = 0;
-        for (int c = 0; c < COLUMNS; c++)
-        {
-            count = (board[row][c].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
-        }
+        if (gameStore != null)
+            gameStore.close();
+    }
 
-        // Check vertical
-        count = 0;
-        for (int r = 0; r < ROWS; r++)
-        {
-            count = (board[r][col].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
-        }
-        
-        // Check diagonal (top-left to bottom-right)
-        int startRow = Math.max(0, row - col);
-        int startCol = Math.max(0, col - row);
-        count = 0;
-        
-        for (int r = startRow, c = startCol; r < ROWS && c < COLUMNS; r++, c++)
+    // Stores the game once: when it is won, or when the window closes in the middle of it
+    private void recordGame()
+    {
+        if (gameStore == null || recorded || position.moves() == 0)
+            return;
+
+        recorded = true;
+
+        try
         {
-            count = (board[r][c].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
+            gameStore.append(position);
         }
-
-        // Check diagonal (bottom-left to top-right)
-        startRow = Math.min(ROWS - 1, row + col);
-        startCol = Math.max(0, col - (ROWS - 1 - row));
-        count = 0;
-        
-        for (int r = startRow, c = startCol; r >= 0 && c < COLUMNS; r--, c++)
+        catch (IOException e)
         {
-            count = (board[r][c].getFill() == playerColor) ? count + 1 : 0;
-            
-            if (count >= 4)
-                return true;
+            throw new UncheckedIOException("Cannot record the game", e);
         }
-
-        return false;
     }
 
-
     private void showWinner(String winner)
     {
+        recordGame();
+
         Alert alert = new Alert(AlertType.INFORMATION);
         alert.setTitle("Connect 4");
         alert.setHeaderText("Game Over");
@@ -0,0 +1,66 @@
+package application;
+
+import java.util.Random;
+
+// Time-to-depth and nodes/s of the Lazy SMP search for 1, 2, 4, 8 and 16 threads on a fixed
+// set of random positions. Usage: ParallelBenchmark [depth] [positions] [table MB]
+public class ParallelBenchmark
+{
+    private static final int[] THREADS = { 1, 2, 4, 8, 16 };
+
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        Random random = new Random(7);
+        Position[] positions = new Position[count];
+
+        for (int i = 0; i < count; i++)
+            positions[i] = SearchCompare.randomPosition(random);
+
+        System.out.printf("%d available processors, depth %d, %d positions, %d MB table%n",
+                Runtime.getRuntime().availableProcessors(), depth, count, megabytes);
+        System.out.printf("%7s %14s %14s %12s %10s%n", "threads", "ms/move", "nodes/move", "nodes/s", "speedup");
+
+        // Warm up the JIT before the timed runs
+        run(new Engine(depth, true, new TranspositionTable(megabytes), 1), positions);
+
+        double baseline = 0;
+
+        for (int threads : THREADS)
+        {
+            TranspositionTable table = new TranspositionTable(megabytes);
+            Engine engine = new Engine(depth, true, table, threads);
+            long[] result = run(engine, positions);
+            engine.shutdown();
+
+            double millis = result[0] / 1e6 / count;
+
+            if (threads == 1)
+                baseline = millis;
+
+            System.out.printf("%7d %14.2f %,14d %,12.0f %9.2fx%n", threads, millis, result[1] / count,
+                    result[1] / (result[0] / 1e9), baseline / millis);
+        }
+    }
+
+    // Returns total nanoseconds and total nodes over all positions, each searched with a cleared table
+    private static long[] run(Engine engine, Position[] positions)
+    {
+        long time = 0, nodes = 0;
+
+        for (Position position : positions)
+        {
+            engine.table().clear();
+
+            long start = System.nanoTime();
+            engine.aiMove(new Position(position));
+            time += System.nanoTime() - start;
+            nodes += engine.nodes();
+        }
+
+        return new long[] { time, nodes };
+    }
+}
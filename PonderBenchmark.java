@@ -0,0 +1,128 @@
+package application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Measures how much pondering shortens the AI's response time. The same games are played twice,
+// once without and once with pondering. In each game a simulated player takes think
+// milliseconds per move and plays the moves of a shallow engine after a random opening. The
+// response time runs from requestMove until the answer arrives, as the AI window sees it. Both
+// runs use the same Engine.fromProperties() settings, so they search at equal strength. The
+// transposition table contents still differ between the runs, so a few moves may differ too.
+//
+// Usage: PonderBenchmark [name=value ...]
+//   games=6 think=1000 (milliseconds per player move) player=4 (player search depth) opening=2 seed=1
+public class PonderBenchmark
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args)
+        {
+            int eq = arg.indexOf('=');
+
+            if (eq < 0)
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        int games = Integer.parseInt(options.getOrDefault("games", "6"));
+        long think = Long.parseLong(options.getOrDefault("think", "1000"));
+        int playerDepth = Integer.parseInt(options.getOrDefault("player", "4"));
+        int opening = Integer.parseInt(options.getOrDefault("opening", "2"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+        System.out.printf("%d games, player thinks %d ms per move at depth %d%n", games, think, playerDepth);
+
+        String[] plain = run(false, games, think, playerDepth, opening, seed);
+        String[] pondering = run(true, games, think, playerDepth, opening, seed);
+        int same = 0;
+
+        for (int game = 0; game < games; game++)
+            if (plain[game].equals(pondering[game]))
+                same++;
+
+        System.out.printf("%d of %d games identical in both runs%n", same, games);
+    }
+
+    // Plays the games and returns each game's moves
+    private static String[] run(boolean ponder, int games, long think, int playerDepth, int opening, long seed)
+            throws InterruptedException
+    {
+        Engine engine = Engine.fromProperties();
+        Engine player = new Engine(playerDepth, true);
+        BlockingQueue<Integer> answers = new LinkedBlockingQueue<>();
+
+        // Answers are handed over on the engine thread; there is no FX thread here
+        EngineService service = new EngineService(engine, Runnable::run);
+        String[] moves = new String[games];
+        long[] latencies = new long[games * Variant.STANDARD.cells()];
+        int count = 0;
+        int aiWins = 0;
+
+        for (int game = 0; game < games; game++)
+        {
+            Position position = Tournament.randomOpening(new Random(seed * 1_000_003 + game), opening);
+            int ai = 1 - position.currentPlayer();
+
+            while (!position.isFull())
+            {
+                int col;
+
+                if (position.currentPlayer() == ai)
+                {
+                    long start = System.nanoTime();
+                    service.requestMove(position, (aiCol, stats) -> answers.offer(aiCol));
+                    col = answers.take();
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                else
+                {
+                    if (ponder)
+                        service.ponder(position);
+
+                    long start = System.nanoTime();
+                    col = player.aiMove(new Position(position));
+                    Thread.sleep(Math.max(0, think - (System.nanoTime() - start) / 1_000_000));
+                }
+
+                int mover = position.currentPlayer();
+                position.play(col);
+
+                if (position.wonWith(col))
+                {
+                    if (mover == ai)
+                        aiWins++;
+
+                    break;
+                }
+            }
+
+            StringBuilder played = new StringBuilder();
+
+            for (int ply = 0; ply < position.moves(); ply++)
+                played.append(position.column(ply) + 1);
+
+            moves[game] = played.toString();
+        }
+
+        service.shutdown();
+
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long instant = Arrays.stream(sorted).filter(nanos -> nanos < 1_000_000).count();
+
+        System.out.printf("%-12s %3d AI moves, AI won %d of %d: mean %6.1f ms, p50 %6.1f ms, p90 %6.1f ms, max %6.1f ms, "
+                + "%d answered within 1 ms%n", ponder ? "pondering" : "no pondering", count, aiWins, games,
+                Arrays.stream(sorted).average().orElse(0) / 1e6, sorted[count / 2] / 1e6, sorted[count * 9 / 10] / 1e6,
+                sorted[count - 1] / 1e6, instant);
+
+        return moves;
+    }
+}
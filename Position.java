@@ -0,0 +1,429 @@
+package application;
+
+public class Position
+{
+    // -Dconnect4.symmetry=false turns off mirror canonicalization, for A/B comparisons
+    static final boolean SYMMETRY = !"false".equals(System.getProperty("connect4.symmetry"));
+
+    private final Variant variant;
+
+    // Copied out of the variant for the hot paths
+    private final int rows;
+    private final int connect;
+    private final int columnBits;
+    private final int words;
+    private final int cellSlots;
+    private final boolean compact;
+    private final int[] shifts;
+    private final int[][] cellWindows;
+    private final int[] stateStep;
+    private final int[][] scoreDelta;
+    private final long[] zobrist;
+
+    // Bitboards with one bit per cell, column by column; player p's stones occupy words
+    // [p * words, (p + 1) * words)
+    private final long[] boards;
+    private final int[] heights;
+    private final byte[] history;
+    private int moves;
+    private long hash;
+
+    // The same for the left-right mirror image of the board, kept alongside so that the
+    // canonical key costs a comparison: bitboards on compact boards, the hash on larger ones
+    private final long[] mirrorBoards = new long[2];
+    private final int mirrorOffset;
+    private long mirrorHash;
+
+    // Per-window stone counts and the sum of their scores, kept up to date by play and undo;
+    // scores[moves] is the current sum and earlier entries let undo restore it directly
+    private final int[] windowStates;
+    private final int[] scores;
+
+    public Position()
+    {
+        this(Variant.STANDARD);
+    }
+
+    public Position(Variant variant)
+    {
+        this.variant = variant;
+
+        rows = variant.rows();
+        connect = variant.connect();
+        columnBits = variant.columnBits;
+        words = variant.words;
+        cellSlots = variant.columns() * columnBits;
+        compact = variant.compact;
+        shifts = variant.shifts;
+        cellWindows = variant.cellWindows;
+        stateStep = variant.stateStep;
+        scoreDelta = variant.scoreDelta;
+        zobrist = variant.zobrist;
+        mirrorOffset = (variant.columns() - 1) * columnBits;
+
+        boards = new long[2 * words];
+        heights = new int[variant.columns()];
+        history = new byte[variant.cells()];
+        windowStates = new int[variant.windowCount];
+        scores = new int[variant.cells() + 1];
+    }
+
+    public Position(Position other)
+    {
+        this(other.variant);
+
+        System.arraycopy(other.boards, 0, boards, 0, boards.length);
+        System.arraycopy(other.heights, 0, heights, 0, heights.length);
+        System.arraycopy(other.history, 0, history, 0, other.moves);
+        moves = other.moves;
+        hash = other.hash;
+        mirrorBoards[0] = other.mirrorBoards[0];
+        mirrorBoards[1] = other.mirrorBoards[1];
+        mirrorHash = other.mirrorHash;
+        System.arraycopy(other.windowStates, 0, windowStates, 0, windowStates.length);
+        System.arraycopy(other.scores, 0, scores, 0, scores.length);
+    }
+
+    // Builds a standard position from a string of 1-based column digits, e.g. "4453"
+    public static Position fromMoves(String moves)
+    {
+        return fromMoves(Variant.STANDARD, moves);
+    }
+
+    // Boards with more than nine columns take 1-based column numbers separated by spaces
+    // instead, e.g. "10 4 11", as GameRecord writes them
+    public static Position fromMoves(Variant variant, String moves)
+    {
+        Position position = new Position(variant);
+        String trimmed = moves.trim();
+        String[] numbers = variant.columns() <= 9 ? null : trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+        int count = numbers != null ? numbers.length : trimmed.length();
+
+        for (int i = 0; i < count; i++)
+        {
+            String move = numbers != null ? numbers[i] : String.valueOf(trimmed.charAt(i));
+            int col;
+
+            try
+            {
+                col = Integer.parseInt(move) - 1;
+            }
+            catch (NumberFormatException e)
+            {
+                col = -1;
+            }
+
+            if (col < 0 || col >= variant.columns() || !position.canPlay(col))
+                throw new IllegalArgumentException("Invalid move " + move + " at " + i + " in " + moves);
+
+            if (position.isWinningMove(col))
+                throw new IllegalArgumentException("Game is already won at move " + i + " in " + moves);
+
+            position.play(col);
+        }
+
+        return position;
+    }
+
+    public Variant variant()
+    {
+        return variant;
+    }
+
+    public int columns()
+    {
+        return heights.length;
+    }
+
+    public boolean canPlay(int col)
+    {
+        return heights[col] < rows;
+    }
+
+    public void play(int col)
+    {
+        int cell = col * columnBits + heights[col]++;
+        int player = moves & 1;
+        int[] delta = scoreDelta[player];
+        int step = stateStep[player];
+        int score = scores[moves];
+
+        for (int w : cellWindows[cell])
+        {
+            int state = windowStates[w];
+            score += delta[state];
+            windowStates[w] = state + step;
+        }
+
+        boards[player * words + (cell >>> 6)] |= 1L << cell;
+
+        // The mirrored cell is the same height in the mirrored column
+        int mirrorCell = cell + mirrorOffset - 2 * col * columnBits;
+
+        if (!compact)
+        {
+            hash ^= zobrist[player * cellSlots + cell];
+
+            if (SYMMETRY)
+                mirrorHash ^= zobrist[player * cellSlots + mirrorCell];
+        }
+        else if (SYMMETRY)
+            mirrorBoards[player] |= 1L << mirrorCell;
+
+        history[moves] = (byte) col;
+        scores[++moves] = score;
+    }
+
+    public void undo(int col)
+    {
+        moves--;
+
+        int cell = col * columnBits + --heights[col];
+        int player = moves & 1;
+        int step = stateStep[player];
+
+        boards[player * words + (cell >>> 6)] ^= 1L << cell;
+
+        int mirrorCell = cell + mirrorOffset - 2 * col * columnBits;
+
+        if (!compact)
+        {
+            hash ^= zobrist[player * cellSlots + cell];
+
+            if (SYMMETRY)
+                mirrorHash ^= zobrist[player * cellSlots + mirrorCell];
+        }
+        else if (SYMMETRY)
+            mirrorBoards[player] ^= 1L << mirrorCell;
+
+        for (int w : cellWindows[cell])
+            windowStates[w] -= step;
+    }
+
+    public int currentPlayer()
+    {
+        return moves & 1;
+    }
+
+    public int moves()
+    {
+        return moves;
+    }
+
+    // Column of the given move of the game, counting from 0
+    public int column(int ply)
+    {
+        return history[ply];
+    }
+
+    public int height(int col)
+    {
+        return heights[col];
+    }
+
+    public boolean isFull()
+    {
+        return moves == scores.length - 1;
+    }
+
+    // The player's stones as one bitboard; only compact boards fit in a long
+    public long board(int player)
+    {
+        requireCompact();
+        return boards[player];
+    }
+
+    // Row 0 is the bottom of the board; returns the player index or -1 for an empty cell
+    public int owner(int row, int col)
+    {
+        int cell = col * columnBits + row;
+        long bit = 1L << cell;
+
+        if ((boards[cell >>> 6] & bit) != 0)
+            return 0;
+
+        if ((boards[words + (cell >>> 6)] & bit) != 0)
+            return 1;
+
+        return -1;
+    }
+
+    // On compact boards unique for every position: the side to move's stones plus the occupancy
+    // mask. Larger boards use a 64-bit Zobrist hash instead, where collisions are possible but
+    // vanishingly rare.
+    public long key()
+    {
+        return compact ? boards[moves & 1] + (boards[0] | boards[1]) : hash;
+    }
+
+    // key() of the left-right mirror image. A position and its mirror image have the same value,
+    // with the moves mirrored.
+    public long mirrorKey()
+    {
+        if (!SYMMETRY)
+            return key();
+
+        return compact ? mirrorBoards[moves & 1] + (mirrorBoards[0] | mirrorBoards[1]) : mirrorHash;
+    }
+
+    // The smaller of key() and mirrorKey(), the same for a position and its mirror image. Caches
+    // and books store results under it, so one entry serves both.
+    public long canonicalKey()
+    {
+        return Math.min(key(), mirrorKey());
+    }
+
+    // Whether canonicalKey() is the mirror image's key. Moves stored under it are then those of
+    // the mirror image and go through mirror(col) both ways.
+    public boolean isMirrored()
+    {
+        return mirrorKey() < key();
+    }
+
+    // Whether the board reads the same mirrored. Each move then has a mirror move of equal value,
+    // and only one of the two needs searching.
+    public boolean isSymmetric()
+    {
+        return SYMMETRY && mirrorKey() == key();
+    }
+
+    public int mirror(int col)
+    {
+        return heights.length - 1 - col;
+    }
+
+    // Heuristic value for the player: every window still open to one side scores by how many of
+    // its cells that side already holds. Maintained incrementally, so this is a field read.
+    public int evaluate(int player)
+    {
+        return player == 0 ? scores[moves] : -scores[moves];
+    }
+
+    // Whether the side to move would complete a line by playing the column. Compact boards test
+    // the bitboard with shifts; larger ones look for a window through the cell that lacks only
+    // this stone.
+    public boolean isWinningMove(int col)
+    {
+        int cell = col * columnBits + heights[col];
+        int player = moves & 1;
+
+        if (compact)
+            return hasLine(boards[player] | 1L << cell);
+
+        return hasWindow(cell, (connect - 1) * stateStep[player]);
+    }
+
+    public boolean isWin(int player)
+    {
+        if (compact)
+            return hasLine(boards[player]);
+
+        int full = connect * stateStep[player];
+
+        for (int state : windowStates)
+            if (state == full)
+                return true;
+
+        return false;
+    }
+
+    // Whether the top stone of the column completes a line. Only the owner of that stone is
+    // tested: if the game was not over before it, any line must run through the new stone.
+    public boolean wonWith(int col)
+    {
+        int cell = col * columnBits + heights[col] - 1;
+        int player = (boards[cell >>> 6] & 1L << cell) != 0 ? 0 : 1;
+
+        if (compact)
+            return hasLine(boards[player]);
+
+        return hasWindow(cell, connect * stateStep[player]);
+    }
+
+    // Length of the longest run of the player's stones along each direction, in the order
+    // vertical, horizontal, and the two diagonals; compact boards only
+    public int longestRun(int player, int direction)
+    {
+        requireCompact();
+
+        long b = boards[player];
+        int shift = shifts[direction];
+        int length = 0;
+
+        while (b != 0)
+        {
+            b &= b >>> shift;
+            length++;
+        }
+
+        return length;
+    }
+
+    private boolean hasWindow(int cell, int state)
+    {
+        for (int w : cellWindows[cell])
+            if (windowStates[w] == state)
+                return true;
+
+        return false;
+    }
+
+    // Whether the bitboard holds connect stones in a row in any direction. Four in a row, the
+    // common case, is unrolled; otherwise runs are doubled while they fit and the last step
+    // overlaps two runs to reach connect.
+    private boolean hasLine(long b)
+    {
+        if (connect == 4)
+            return hasFour(b);
+
+        for (int shift : shifts)
+        {
+            long m = b;
+            int length = 1;
+
+            while (2 * length <= connect)
+            {
+                m &= m >>> length * shift;
+                length *= 2;
+            }
+
+            if (length < connect)
+                m &= m >>> (connect - length) * shift;
+
+            if (m != 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    private boolean hasFour(long b)
+    {
+        int h1 = columnBits;
+
+        // Vertical
+        long m = b & (b >>> 1);
+        if ((m & (m >>> 2)) != 0)
+            return true;
+
+        // Horizontal
+        m = b & (b >>> h1);
+        if ((m & (m >>> 2 * h1)) != 0)
+            return true;
+
+        // Diagonal (bottom-left to top-right)
+        m = b & (b >>> (h1 + 1));
+        if ((m & (m >>> 2 * (h1 + 1))) != 0)
+            return true;
+
+        // Diagonal (top-left to bottom-right)
+        m = b & (b >>> (h1 - 1));
+        return (m & (m >>> 2 * (h1 - 1))) != 0;
+    }
+
+    private void requireCompact()
+    {
+        if (!compact)
+            throw new IllegalStateException("The " + variant + " board does not fit in one long");
+    }
+}
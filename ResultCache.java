@@ -0,0 +1,322 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Exact results of solved positions kept in a memory-mapped file, so that they outlive the JVM
+// and every process mapping the same file shares them. Layout: a 64-byte header (magic,
+// version, rows, columns, connect, capacity, generation) followed by capacity 16-byte slots.
+// Slots are grouped in buckets of four, one cache line each, and a key may sit in any slot of
+// the bucket its hash picks. A slot holds a word of data (score, best move, empty cells and the
+// generation it was written in) and the canonical key xor that data, as in TranspositionTable,
+// so a slot torn by a concurrent writer, in this process or another, reads as a miss.
+//
+// Reads take no lock: probe() reads the two words of each slot with acquire semantics and
+// checks them against each other. store() only queues the result. A background thread writes
+// the queue into the mapping every flushMillis and then forces the file, so one fsync covers a
+// whole batch. A full queue is written into the mapping at once and forced with the next batch.
+//
+// When a bucket is full, a new result replaces the entry of least worth, its empty cells less
+// its age, and only if that is no more than the new result's empty cells. Deep results, which
+// took long to solve, stay; shallow ones and those not refreshed for a while give way. Age is
+// counted in generations: one passes at every open and whenever writes equal to a sixteenth of
+// the capacity have been made since the last. Results stored again are refreshed to the current
+// generation.
+public final class ResultCache implements Closeable
+{
+    static final int MAGIC = 0x43345243;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_BYTES = 16;
+    static final int BUCKET_SLOTS = 4;
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int GENERATION_OFFSET = 16;
+    private static final int AGE_FRACTION = 16;
+    private static final int MAX_AGE = 255;
+    private static final int QUEUE_ENTRIES = 4096;
+    private static final long USED = 1L << 63;
+
+    // Aligned long access with memory ordering on the mapped bytes
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path path;
+    private final Variant variant;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int shift;
+    private final ScheduledExecutorService flusher;
+
+    // Pairs of key and data waiting to be written
+    private final long[] queue = new long[2 * QUEUE_ENTRIES];
+    private int queued;
+    private boolean dirty;
+    private long generation;
+    private long writesThisGeneration;
+
+    private ResultCache(Path path, Variant variant, MappedByteBuffer buffer, long flushMillis)
+    {
+        this.path = path;
+        this.variant = variant;
+        this.buffer = buffer;
+
+        checkHeader();
+        capacity = buffer.getInt(12);
+        shift = 64 - Integer.numberOfTrailingZeros(capacity / BUCKET_SLOTS);
+
+        if (buffer.capacity() < HEADER_BYTES + (long) capacity * SLOT_BYTES)
+            throw new IllegalArgumentException(path + " is truncated");
+
+        generation = (long) LONGS.getAcquire(buffer, GENERATION_OFFSET) + 1;
+        LONGS.setRelease(buffer, GENERATION_OFFSET, generation);
+
+        flusher = flushMillis > 0 ? Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            Thread thread = new Thread(r, "connect4-result-cache");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        if (flusher != null)
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Opens the cache file, creating it with room for about megabytes of results if it does not
+    // exist; an existing file keeps its own size. Stored results reach the file at most
+    // flushMillis later; 0 leaves that to flush() and close().
+    public static ResultCache open(Path path, Variant variant, int megabytes, long flushMillis) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE))
+        {
+            if (channel.size() == 0)
+            {
+                // At most 2^26 slots, so the file fits one mapping
+                long wanted = Math.max(MIN_CAPACITY, (long) megabytes * 1024 * 1024 / SLOT_BYTES);
+                int capacity = 1 << Math.min(26, 63 - Long.numberOfLeadingZeros(wanted));
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_BYTES + (long) capacity * SLOT_BYTES);
+
+                buffer.putInt(0, MAGIC).putInt(4, VERSION).put(8, (byte) variant.rows()).put(9, (byte) variant.columns())
+                        .put(10, (byte) variant.connect()).putInt(12, capacity);
+
+                return new ResultCache(path, variant, buffer, flushMillis);
+            }
+
+            return new ResultCache(path, variant, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()),
+                    flushMillis);
+        }
+    }
+
+    // -Dconnect4.cache names the cache file, or null for none; -Dconnect4.cache.mb sizes a new
+    // one (default 64) and -Dconnect4.cache.flush is the flush interval in milliseconds (default 1000)
+    public static ResultCache fromProperties(Variant variant)
+    {
+        String file = System.getProperty("connect4.cache");
+
+        if (file == null)
+            return null;
+
+        try
+        {
+            return open(Path.of(file), variant, Integer.getInteger("connect4.cache.mb", 64),
+                    Long.getLong("connect4.cache.flush", 1000));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot open result cache " + file, e);
+        }
+    }
+
+    public Variant variant()
+    {
+        return variant;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    // Returns the entry for the canonical position key, or 0 if there is none. Safe from any
+    // thread at any time.
+    public long probe(long key)
+    {
+        int slot = bucket(key);
+
+        for (int i = 0; i < BUCKET_SLOTS; i++, slot++)
+        {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long data = (long) LONGS.getAcquire(buffer, offset + 8);
+
+            if (data != 0 && ((long) LONGS.getAcquire(buffer, offset) ^ data) == key)
+                return data;
+        }
+
+        return 0;
+    }
+
+    // Queues the exact score of the canonical position, with its best move in canonical
+    // orientation or TranspositionTable.NO_MOVE
+    public synchronized void store(long key, int score, int move, int emptyCells)
+    {
+        if (queued == QUEUE_ENTRIES)
+            writeQueue();
+
+        queue[2 * queued] = key;
+        queue[2 * queued + 1] = (score & 0xFFL) | (long) move << 8 | (long) emptyCells << 12;
+        queued++;
+        dirty = true;
+    }
+
+    // From the side to move's point of view, as Solver scores
+    public static int score(long entry)
+    {
+        return (byte) entry;
+    }
+
+    public static int move(long entry)
+    {
+        return (int) (entry >>> 8) & 0xF;
+    }
+
+    public static int emptyCells(long entry)
+    {
+        return (int) (entry >>> 12) & 0xFF;
+    }
+
+    // Writes the queued results into the file and forces it to disk
+    public void flush() throws IOException
+    {
+        synchronized (this)
+        {
+            if (!dirty)
+                return;
+
+            writeQueue();
+            dirty = false;
+        }
+
+        // Forced outside the lock so that stores continue meanwhile
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (flusher != null)
+            flusher.shutdownNow();
+
+        flush();
+    }
+
+    private void flushQuietly()
+    {
+        try
+        {
+            flush();
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            // The next flush or close retries
+        }
+    }
+
+    // Called with the lock held
+    private void writeQueue()
+    {
+        // Other processes sharing the file may have moved the generation on
+        generation = Math.max(generation, (long) LONGS.getAcquire(buffer, GENERATION_OFFSET));
+
+        for (int i = 0; i < queued; i++)
+            write(queue[2 * i], queue[2 * i + 1] | (generation & 0xFFFFFFFFL) << 20 | USED);
+
+        writesThisGeneration += queued;
+        queued = 0;
+
+        if (writesThisGeneration >= capacity / AGE_FRACTION)
+        {
+            writesThisGeneration = 0;
+            LONGS.setRelease(buffer, GENERATION_OFFSET, ++generation);
+        }
+    }
+
+    private void write(long key, long data)
+    {
+        int first = bucket(key);
+        int victim = -1;
+        int victimWorth = Integer.MAX_VALUE;
+
+        for (int slot = first; slot < first + BUCKET_SLOTS; slot++)
+        {
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long old = (long) LONGS.getAcquire(buffer, offset + 8);
+
+            if (old != 0 && ((long) LONGS.getAcquire(buffer, offset) ^ old) == key)
+            {
+                // Keep a known best move when only the score came again
+                if (move(data) == TranspositionTable.NO_MOVE)
+                    data = data & ~(0xFL << 8) | (long) move(old) << 8;
+
+                put(offset, key, data);
+                return;
+            }
+
+            int worth = old == 0 ? Integer.MIN_VALUE : emptyCells(old) - age(old);
+
+            if (worth < victimWorth)
+            {
+                victim = offset;
+                victimWorth = worth;
+            }
+        }
+
+        if (victimWorth <= emptyCells(data))
+            put(victim, key, data);
+    }
+
+    private void put(int offset, long key, long data)
+    {
+        LONGS.setRelease(buffer, offset + 8, data);
+        LONGS.setRelease(buffer, offset, key ^ data);
+    }
+
+    // Generations since the entry was written, capped
+    private int age(long entry)
+    {
+        long written = entry >>> 20 & 0xFFFFFFFFL;
+
+        return (int) Math.min(MAX_AGE, Math.max(0, (generation & 0xFFFFFFFFL) - written));
+    }
+
+    private void checkHeader()
+    {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException(path + " is not a result cache");
+
+        if (buffer.get(8) != variant.rows() || buffer.get(9) != variant.columns() || buffer.get(10) != variant.connect())
+            throw new IllegalArgumentException(path + " holds results for another board than " + variant);
+
+        int capacity = buffer.getInt(12);
+
+        if (capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException(path + " is not a result cache");
+    }
+
+    // The first slot of the key's bucket
+    private int bucket(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift) * BUCKET_SLOTS;
+    }
+}
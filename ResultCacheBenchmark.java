@@ -0,0 +1,130 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Whether a ResultCache makes later runs faster. Each round stands for one run of the program:
+// a new engine and solver, with empty tables, play the same openings against themselves, and
+// each side makes a random move instead of its own now and then, so the games of different
+// rounds overlap without repeating. Every round's games are played twice, without the cache
+// and then with the cache file that the earlier rounds filled, reopened as after a restart.
+// Both play the same moves, as cached results are the ones the solver would find. The nodes the
+// solver searches, and the time it takes, are what the cache should cut.
+//
+// Usage: ResultCacheBenchmark [name=value ...]
+//   file=target/results.cache (started afresh) rounds=5 games=40 depth=8 noise=10 (percent of
+//   moves played at random) empty=22 (empty cells the solver starts at) opening=4 seed=1 mb=64
+public class ResultCacheBenchmark
+{
+    private static int solved;
+    private static int cached;
+    private static long nodes;
+
+    public static void main(String[] args) throws IOException
+    {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args)
+        {
+            int eq = arg.indexOf('=');
+
+            if (eq < 0)
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        Path file = Path.of(options.getOrDefault("file", "target/results.cache"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        int games = Integer.parseInt(options.getOrDefault("games", "40"));
+        int depth = Integer.parseInt(options.getOrDefault("depth", "8"));
+        int noise = Integer.parseInt(options.getOrDefault("noise", "10"));
+        int emptyCells = Integer.parseInt(options.getOrDefault("empty", "22"));
+        int opening = Integer.parseInt(options.getOrDefault("opening", "4"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int megabytes = Integer.parseInt(options.getOrDefault("mb", "64"));
+
+        Files.deleteIfExists(file);
+        System.out.printf("%d games per round at depth %d, %d%% random moves, solver at %d empty cells%n", games,
+                depth, noise, emptyCells);
+
+        // Warms up the JIT on both paths, then starts the cache afresh
+        play(null, games, depth, noise, emptyCells, opening, seed, -1);
+        play(ResultCache.open(file, Variant.STANDARD, megabytes, 1000), games, depth, noise, emptyCells, opening, seed, -1);
+        Files.delete(file);
+
+        System.out.printf("%-6s %7s %11s %15s %15s %12s %9s%n", "round", "solved", "from cache", "nodes, no cache",
+                "nodes, cache", "ms, no cache", "ms, cache");
+
+        for (int round = 1; round <= rounds; round++)
+        {
+            long uncachedNanos = play(null, games, depth, noise, emptyCells, opening, seed, round);
+            long uncachedNodes = nodes;
+            ResultCache cache = ResultCache.open(file, Variant.STANDARD, megabytes, 1000);
+            long cachedNanos = play(cache, games, depth, noise, emptyCells, opening, seed, round);
+
+            System.out.printf("%-6d %7d %11d %,15d %,15d %12.0f %9.0f%n", round, solved, cached, uncachedNodes, nodes,
+                    uncachedNanos / 1e6, cachedNanos / 1e6);
+        }
+    }
+
+    // Plays one round's games and returns the time spent in the solver; the counts of solved
+    // moves and of the solver's nodes are left in the static fields. Closes the cache, as
+    // the program would on exit.
+    private static long play(ResultCache cache, int games, int depth, int noise, int emptyCells, int opening,
+            long seed, int round)
+    {
+        Solver solver = new Solver(new TranspositionTable(32));
+        solver.setCache(cache);
+
+        Engine engine = new Engine(depth, true, new TranspositionTable(16));
+        engine.setSolver(solver, emptyCells);
+
+        Random random = new Random(seed * 1_000_003 + round);
+        long solverNanos = 0;
+        solved = 0;
+        cached = 0;
+        nodes = 0;
+
+        for (int game = 0; game < games; game++)
+        {
+            Position position = Tournament.randomOpening(new Random(seed + game), opening);
+            engine.newGame();
+
+            while (!position.isFull())
+            {
+                long start = System.nanoTime();
+                int col = engine.aiMove(new Position(position));
+                long nanos = System.nanoTime() - start;
+
+                if (engine.solved())
+                {
+                    solved++;
+                    solverNanos += nanos;
+                    nodes += engine.nodes();
+
+                    if (engine.nodes() == 0)
+                        cached++;
+                }
+
+                if (random.nextInt(100) < noise)
+                    do
+                        col = random.nextInt(position.columns());
+                    while (!position.canPlay(col));
+
+                position.play(col);
+
+                if (position.wonWith(col))
+                    break;
+            }
+        }
+
+        engine.shutdown();
+
+        return solverNanos;
+    }
+}
@@ -0,0 +1,74 @@
+package application;
+
+import java.util.Random;
+
+// A/B check: plays random positions and confirms minimax and alpha-beta choose the same column.
+// Usage: SearchCompare [depth] [positions] [table MB, 0 for none]
+public class SearchCompare
+{
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+
+        TranspositionTable table = megabytes > 0 ? new TranspositionTable(megabytes) : null;
+        Engine minimax = new Engine(depth, false);
+        Engine alphaBeta = new Engine(depth, true, table);
+        Random random = new Random(1);
+
+        SearchStats alphaBetaStats = new SearchStats();
+        long minimaxNodes = 0, minimaxTime = 0, alphaBetaTime = 0;
+        int mismatches = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            Position position = randomPosition(random);
+
+            long start = System.nanoTime();
+            int a = minimax.aiMove(position);
+            minimaxTime += System.nanoTime() - start;
+            minimaxNodes += minimax.nodes();
+
+            // Entries left by other positions can be deeper than this search and change its choice
+            if (table != null)
+                table.clear();
+
+            start = System.nanoTime();
+            int b = alphaBeta.aiMove(position);
+            alphaBetaTime += System.nanoTime() - start;
+            alphaBetaStats.add(alphaBeta.stats());
+
+            if (a != b)
+            {
+                mismatches++;
+                System.out.println("Mismatch at position " + i + ": minimax " + a + ", alpha-beta " + b);
+            }
+        }
+
+        System.out.printf("depth %d, %d positions, %d mismatches%n", depth, count, mismatches);
+        System.out.printf("minimax:    %,d nodes, %.1f ms%n", minimaxNodes, minimaxTime / 1e6);
+        System.out.printf("alpha-beta: %s, %.1f ms%n", alphaBetaStats, alphaBetaTime / 1e6);
+    }
+
+    // A position reached by random moves in which nobody has won yet
+    static Position randomPosition(Random random)
+    {
+        while (true)
+        {
+            Position position = new Position();
+            int plies = random.nextInt(20);
+
+            while (position.moves() < plies)
+            {
+                int col = random.nextInt(position.columns());
+
+                if (position.canPlay(col))
+                    position.play(col);
+            }
+
+            if (!position.isWin(0) && !position.isWin(1))
+                return position;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package application;
+
+import java.util.Arrays;
+
+// Counters kept by one search thread; the engine merges them into a single total after each move.
+// Node counts and per-depth times are always kept. The other counters are only updated with
+// -Dconnect4.instrument=true: ENABLED is static final, so when it is off the JIT removes the
+// guarded code from the search entirely.
+public class SearchStats
+{
+    public static final boolean ENABLED = Boolean.getBoolean("connect4.instrument");
+
+    // Room for a search to the end of the largest board a Variant allows
+    static final int MAX_DEPTH = 256;
+
+    long nodes;
+    long leafEvaluations;
+    long terminalNodes;
+    long expandedNodes;
+    long childrenSearched;
+    long cutoffs;
+    long firstMoveCutoffs;
+    long tableProbes;
+    long tableHits;
+    long tableCutoffs;
+    long tableStores;
+
+    // Filled in by the main search thread only: the deepest completed iteration and the time
+    // from the start of the move until each iteration completed
+    int depthReached = -1;
+    final long[] depthNanos = new long[MAX_DEPTH];
+    long nanos;
+
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    public long leafEvaluations()
+    {
+        return leafEvaluations;
+    }
+
+    public long terminalNodes()
+    {
+        return terminalNodes;
+    }
+
+    public long cutoffs()
+    {
+        return cutoffs;
+    }
+
+    public long tableProbes()
+    {
+        return tableProbes;
+    }
+
+    public long tableHits()
+    {
+        return tableHits;
+    }
+
+    public long tableCutoffs()
+    {
+        return tableCutoffs;
+    }
+
+    public long tableStores()
+    {
+        return tableStores;
+    }
+
+    public int depthReached()
+    {
+        return depthReached;
+    }
+
+    // Milliseconds from the start of the move until the given depth was completed
+    public double depthMillis(int depth)
+    {
+        return depthNanos[depth] / 1e6;
+    }
+
+    public double millis()
+    {
+        return nanos / 1e6;
+    }
+
+    public double nodesPerSecond()
+    {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+
+    // Average number of children searched per expanded node
+    public double branchingFactor()
+    {
+        return expandedNodes == 0 ? 0 : (double) childrenSearched / expandedNodes;
+    }
+
+    // Share of beta cutoffs caused by the first move tried, a measure of move ordering
+    public double firstMoveCutoffRate()
+    {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public double tableHitRate()
+    {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    SearchStats copy()
+    {
+        SearchStats copy = new SearchStats();
+        copy.add(this);
+        System.arraycopy(depthNanos, 0, copy.depthNanos, 0, MAX_DEPTH);
+        return copy;
+    }
+
+    // Totals the counters and times; the depth becomes the deeper of the two
+    void add(SearchStats other)
+    {
+        nodes += other.nodes;
+        leafEvaluations += other.leafEvaluations;
+        terminalNodes += other.terminalNodes;
+        expandedNodes += other.expandedNodes;
+        childrenSearched += other.childrenSearched;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        tableCutoffs += other.tableCutoffs;
+        tableStores += other.tableStores;
+        nanos += other.nanos;
+        depthReached = Math.max(depthReached, other.depthReached);
+    }
+
+    void reset()
+    {
+        nodes = leafEvaluations = terminalNodes = expandedNodes = childrenSearched = 0;
+        cutoffs = firstMoveCutoffs = tableProbes = tableHits = tableCutoffs = tableStores = 0;
+        depthReached = -1;
+        nanos = 0;
+
+        // Only the alpha-beta search fills these, so a book, solver or Monte Carlo move must not
+        // show the times of an earlier search
+        Arrays.fill(depthNanos, 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        String summary = String.format("depth %d, %,d nodes in %.1f ms (%,.0f nodes/s)", depthReached, nodes, millis(),
+                nodesPerSecond());
+
+        if (!ENABLED)
+            return summary;
+
+        return summary + String.format(", %,d leaves, %,d terminal, branching %.2f, %,d cutoffs (%.0f%% first move),"
+                + " table %,d probes, %.1f%% hits, %,d cutoffs, %,d stores", leafEvaluations, terminalNodes,
+                branchingFactor(), cutoffs, 100 * firstMoveCutoffRate(), tableProbes, 100 * tableHitRate(),
+                tableCutoffs, tableStores);
+    }
+}
@@ -0,0 +1,311 @@
+package application;
+
+// Perfect-play solver for positions close to the end of the game. Scores are exact: 0 is a draw,
+// a positive score means the side to move wins and a negative one that it loses, and the
+// magnitude grows the sooner the game ends: a win played onto n stones scores
+// (cells + 1 - n) / 2, which is (43 - n) / 2 on the standard board. Positions are solved with
+// null-window searches that narrow the score range.
+//
+// With a ResultCache, every position solved from the root is stored in it with its best move,
+// and positions with at least CACHE_EMPTY_CELLS empty cells are looked up in it during the
+// search, so a later solve anywhere that shares the cache skips what an earlier one solved.
+public class Solver
+{
+    // Fewer empty cells solve faster than a lookup in the mapped file costs
+    private static final int CACHE_EMPTY_CELLS = 16;
+
+    private final TranspositionTable table;
+    private ResultCache cache;
+
+    private Position position;
+    private int cells;
+    private int[] columnOrder;
+    private long nodes;
+    private int score;
+    private long deadline = Long.MAX_VALUE;
+    private boolean timedOut;
+    private volatile boolean cancelled;
+
+    public Solver(TranspositionTable table)
+    {
+        this.table = table;
+    }
+
+    // Results to read from and add to, shared with other solvers and runs; null for none
+    public void setCache(ResultCache cache)
+    {
+        this.cache = cache;
+    }
+
+    public ResultCache cache()
+    {
+        return cache;
+    }
+
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    // Exact score of the last position solved
+    public int score()
+    {
+        return score;
+    }
+
+    // Makes a running solve return early, and every later one until resume(); their results
+    // are then meaningless
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public void resume()
+    {
+        cancelled = false;
+    }
+
+    // Whether the last solve was cut short, by cancel() or by its deadline
+    public boolean cancelled()
+    {
+        return cancelled || timedOut;
+    }
+
+    // Exact score of the position for the side to move
+    public int solve(Position root)
+    {
+        return solve(root, Long.MAX_VALUE);
+    }
+
+    // The same, giving up at the deadline (System.nanoTime)
+    public int solve(Position root, long deadline)
+    {
+        long cached = start(root, deadline);
+
+        if (cached != 0)
+            return score;
+
+        score = solve();
+
+        if (cache != null && !cancelled())
+            cache.store(root.canonicalKey(), score, TranspositionTable.NO_MOVE, cells - root.moves());
+
+        return score;
+    }
+
+    // Returns a column that keeps the exact score, or -1 if the board is full
+    public int bestMove(Position root)
+    {
+        return bestMove(root, Long.MAX_VALUE);
+    }
+
+    // The same, giving up at the deadline (System.nanoTime) with -1 and cancelled() set
+    public int bestMove(Position root, long deadline)
+    {
+        long cached = start(root, deadline);
+
+        // Cached moves are those of the canonical position
+        if (cached != 0 && ResultCache.move(cached) != TranspositionTable.NO_MOVE)
+            return root.isMirrored() ? root.mirror(ResultCache.move(cached)) : ResultCache.move(cached);
+
+        if (cached == 0)
+            score = solve();
+
+        int col = keepingScore(score);
+
+        // A cancelled solve's score is only a bound, even when the move is an immediate win
+        if (cache != null && col != -1 && !cancelled())
+        {
+            cache.store(root.canonicalKey(), score, root.isMirrored() ? root.mirror(col) : col, cells - root.moves());
+
+            // The move also solves the position it leads to, unless that game is over
+            if (!root.isWinningMove(col))
+            {
+                root.play(col);
+                cache.store(root.canonicalKey(), -score, TranspositionTable.NO_MOVE, cells - root.moves());
+                root.undo(col);
+            }
+        }
+
+        return col;
+    }
+
+    // Sets up a search of root and returns its cache entry, or 0 if there is none. With an
+    // entry, score() already holds the root's score.
+    private long start(Position root, long deadline)
+    {
+        this.deadline = deadline;
+        timedOut = false;
+        position = root;
+        cells = root.variant().cells();
+        columnOrder = root.variant().columnOrder;
+        nodes = 0;
+
+        long cached = cache != null ? cache.probe(root.canonicalKey()) : 0;
+
+        if (cached != 0)
+            score = ResultCache.score(cached);
+
+        return cached;
+    }
+
+    // A column of the root that reaches its exact score, or -1 if cancelled or the board is full
+    private int keepingScore(int score)
+    {
+        boolean symmetric = position.isSymmetric();
+
+        for (int col : columnOrder)
+            if (position.canPlay(col) && !(symmetric && col > position.mirror(col)))
+            {
+                if (position.isWinningMove(col))
+                    return col;
+
+                // Null window around the score: does this move reach it?
+                position.play(col);
+                int value = -negamax(-score, -score + 1);
+                position.undo(col);
+
+                if (cancelled())
+                    return -1;
+
+                if (value >= score)
+                    return col;
+            }
+
+        return -1;
+    }
+
+    // Plies until the game ends under perfect play, counting the root's move; a draw fills the board
+    public static int pliesToEnd(Position root, int score)
+    {
+        int cells = root.variant().cells();
+
+        if (score == 0)
+            return cells - root.moves();
+
+        // The winning stone is played onto n stones, where score = (cells + 1 - n) / 2 for the
+        // winner, and n has the winner's parity
+        int winnerParity = score > 0 ? root.moves() & 1 : 1 - (root.moves() & 1);
+        int n = cells + 1 - 2 * Math.abs(score);
+
+        if ((n & 1) != winnerParity)
+            n--;
+
+        return n - root.moves() + 1;
+    }
+
+    private int solve()
+    {
+        int min = -(cells - position.moves()) / 2;
+        int max = (cells + 1 - position.moves()) / 2;
+
+        while (min < max && !cancelled())
+        {
+            // Probe near zero first: most positions are decided by their sign
+            int med = min + (max - min) / 2;
+
+            if (med <= 0 && min / 2 < med)
+                med = min / 2;
+            else if (med >= 0 && max / 2 > med)
+                med = max / 2;
+
+            int r = negamax(med, med + 1);
+
+            if (r <= med)
+                max = r;
+            else
+                min = r;
+        }
+
+        return min;
+    }
+
+    private int negamax(int alpha, int beta)
+    {
+        // Reading the clock is comparatively slow, so only every 1024 nodes
+        if ((++nodes & 1023) == 0 && System.nanoTime() > deadline)
+            timedOut = true;
+
+        if (cancelled())
+            return 0;
+
+        if (position.isFull())
+            return 0;
+
+        for (int col = 0; col < columnOrder.length; col++)
+            if (position.canPlay(col) && position.isWinningMove(col))
+                return (cells + 1 - position.moves()) / 2;
+
+        // Without an immediate win the best possible result is winning with the next stone of ours
+        int max = (cells - 1 - position.moves()) / 2;
+        int min = -(cells - position.moves()) / 2;
+
+        // Mirror images share one entry; only scores are read back, and those do not mirror
+        long own = position.key();
+        long mirror = position.mirrorKey();
+        boolean symmetric = Position.SYMMETRY && mirror == own;
+        long key = Math.min(own, mirror);
+        long entry = table.probe(key);
+
+        if (entry != 0)
+        {
+            int score = TranspositionTable.score(entry);
+
+            if (TranspositionTable.bound(entry) == TranspositionTable.UPPER)
+                max = Math.min(max, score);
+            else
+                min = Math.max(min, score);
+        }
+
+        int emptyCells = cells - position.moves();
+
+        if (cache != null && emptyCells >= CACHE_EMPTY_CELLS)
+        {
+            long cached = cache.probe(key);
+
+            // An exact score holds against any window
+            if (cached != 0)
+                return ResultCache.score(cached);
+        }
+
+        if (beta > max)
+        {
+            beta = max;
+
+            if (alpha >= beta)
+                return beta;
+        }
+
+        if (alpha < min)
+        {
+            alpha = min;
+
+            if (alpha >= beta)
+                return alpha;
+        }
+
+        for (int col : columnOrder)
+            if (position.canPlay(col) && !(symmetric && col > position.mirror(col)))
+            {
+                position.play(col);
+                int score = -negamax(-beta, -alpha);
+                position.undo(col);
+
+                // A cancelled search's scores must not reach the table
+                if (cancelled())
+                    return 0;
+
+                if (score >= beta)
+                {
+                    table.store(key, score, emptyCells, TranspositionTable.LOWER, mirror < own ? position.mirror(col) : col);
+                    return score;
+                }
+
+                if (score > alpha)
+                    alpha = score;
+            }
+
+        table.store(key, alpha, emptyCells, TranspositionTable.UPPER, TranspositionTable.NO_MOVE);
+        return alpha;
+    }
+}
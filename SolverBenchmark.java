@@ -0,0 +1,62 @@
+package application;
+
+// Solve time and nodes for a fixed set of late-game positions (1-based column strings).
+// Usage: SolverBenchmark [table MB]
+public class SolverBenchmark
+{
+    static final String[] POSITIONS =
+    {
+        "417547445554116664",
+        "276673223332266377",
+        "175417443433113443",
+        "57552143425441223453",
+        "12225264556661255111",
+        "57116155611337552776",
+        "3335114221334666661112",
+        "3146354533445541111345",
+        "6552254565566222266111",
+        "617661455441156556465117",
+        "366372555522336266322551",
+        "412324224414553333225557",
+        "54673744355443334362221111",
+        "72571155255264267661126256",
+        "42772343443356344377166666",
+        "5215532245423176122566675116",
+        "6277755433556664444554777116",
+        "6571565564363331511351366177",
+    };
+
+    public static void main(String[] args)
+    {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        TranspositionTable table = new TranspositionTable(megabytes);
+        Solver solver = new Solver(table);
+
+        // Warm up the JIT before the timed runs
+        for (String moves : POSITIONS)
+            solver.solve(Position.fromMoves(moves));
+
+        System.out.printf("%-30s %5s %5s %5s %12s %10s%n", "position", "empty", "score", "plies", "nodes", "ms");
+
+        long totalNodes = 0, totalTime = 0;
+
+        for (String moves : POSITIONS)
+        {
+            Position position = Position.fromMoves(moves);
+            table.clear();
+
+            long start = System.nanoTime();
+            int score = solver.solve(position);
+            long time = System.nanoTime() - start;
+
+            totalNodes += solver.nodes();
+            totalTime += time;
+
+            System.out.printf("%-30s %5d %5d %5d %,12d %10.1f%n", moves, position.variant().cells() - position.moves(),
+                    score, Solver.pliesToEnd(position, score), solver.nodes(), time / 1e6);
+        }
+
+        System.out.printf("total: %,d nodes in %.1f ms, %,.0f nodes/s%n", totalNodes, totalTime / 1e6,
+                totalNodes / (totalTime / 1e9));
+    }
+}
@@ -0,0 +1,117 @@
+package application;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Nodes searched with and without mirror canonicalization. Run it twice, the second time with
+// -Dconnect4.symmetry=false, and compare. Three sets are searched, each position from a cleared
+// table: every opening of up to two stones at the given depth, random middle-game positions at
+// the same depth, and the SolverBenchmark positions solved exactly. It also counts the
+// positions of up to six stones that an opening book stores.
+//
+// Usage: SymmetryBenchmark [depth] [middle-game positions]
+public class SymmetryBenchmark
+{
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        System.out.printf("Mirror canonicalization %s%n", Position.SYMMETRY ? "on" : "off");
+
+        Engine engine = new Engine(depth, true, new TranspositionTable(64));
+        Position[] openings = openings();
+        Position[] middleGames = new Position[count];
+        Random random = new Random(1);
+
+        for (int i = 0; i < count; i++)
+            middleGames[i] = Tournament.randomOpening(random, 8 + random.nextInt(8));
+
+        // Warm up the JIT before the timed runs
+        search(engine, middleGames);
+
+        report("openings, depth " + depth, openings.length, search(engine, openings));
+        report("middle games, depth " + depth, count, search(engine, middleGames));
+
+        Solver solver = new Solver(new TranspositionTable(64));
+        long nodes = 0;
+        long start = System.nanoTime();
+
+        for (String moves : SolverBenchmark.POSITIONS)
+        {
+            solver.solve(Position.fromMoves(moves));
+            nodes += solver.nodes();
+        }
+
+        report("solver positions", SolverBenchmark.POSITIONS.length, new long[] { nodes, System.nanoTime() - start });
+
+        Set<Long> keys = new HashSet<>();
+        collect(new Position(), 6, keys);
+        System.out.printf("%-26s %,12d entries%n", "book of up to 6 stones", keys.size());
+    }
+
+    // Nodes and nanoseconds over all positions, each searched with a cleared table
+    private static long[] search(Engine engine, Position[] positions)
+    {
+        long nodes = 0;
+        long start = System.nanoTime();
+
+        for (Position position : positions)
+        {
+            engine.newGame();
+            engine.aiMove(position);
+            nodes += engine.nodes();
+        }
+
+        return new long[] { nodes, System.nanoTime() - start };
+    }
+
+    private static void report(String set, int positions, long[] result)
+    {
+        System.out.printf("%-26s %4d positions %,14d nodes %9.1f ms%n", set, positions, result[0], result[1] / 1e6);
+    }
+
+    // The empty board and every position after one or two stones
+    private static Position[] openings()
+    {
+        Position[] openings = new Position[1 + 7 + 49];
+        int n = 0;
+
+        openings[n++] = new Position();
+
+        for (int first = 0; first < 7; first++)
+        {
+            Position one = new Position();
+            one.play(first);
+            openings[n++] = one;
+
+            for (int second = 0; second < 7; second++)
+            {
+                Position two = new Position(one);
+                two.play(second);
+                openings[n++] = two;
+            }
+        }
+
+        return openings;
+    }
+
+    // The keys BookGenerator would store: one per position, or per mirror pair
+    private static void collect(Position position, int plies, Set<Long> keys)
+    {
+        if (!keys.add(position.canonicalKey()) || position.moves() == plies)
+            return;
+
+        for (int col = 0; col < position.columns(); col++)
+            if (position.canPlay(col))
+            {
+                position.play(col);
+
+                if (!position.wonWith(col))
+                    collect(position, plies, keys);
+
+                position.undo(col);
+            }
+    }
+}
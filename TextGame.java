@@ -0,0 +1,167 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+// Plays against the engine in the terminal, for scripted and console use. Nothing here touches
+// a javafx class, so the JVM never loads the toolkit and the game is up as soon as the JVM is.
+// The engine, whose tables take a while to allocate, is built on a background thread while the
+// player picks their first move.
+//
+// The player moves first and types a column number; q or the end of the input quits. The same
+// connect4.* properties as the windowed game pick the board, the engine and the game store.
+// play() takes the input from a caller that has already read from it, such as the launcher,
+// so nothing it has buffered is lost.
+//
+// Usage: TextGame
+public class TextGame
+{
+    private static final char[] DISCS = { 'X', 'O' };
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        play(new BufferedReader(new InputStreamReader(System.in)), System.out);
+    }
+
+    // Plays one game, reading the player's moves from in
+    public static void play(BufferedReader in, PrintStream out) throws IOException, InterruptedException
+    {
+        Variant variant = Variant.fromProperties();
+        Position position = new Position(variant);
+
+        // Neither a lambda nor string concatenation before the first prompt: both spin up
+        // invokedynamic classes at run time, which costs more than the rest of the startup
+        FutureTask<Engine> engineTask = new FutureTask<>(new Callable<Engine>()
+        {
+            @Override
+            public Engine call()
+            {
+                return Engine.fromProperties();
+            }
+        });
+        Thread builder = new Thread(engineTask, "connect4-engine-setup");
+        builder.setDaemon(true);
+
+        out.println(new StringBuilder("Connect ").append(variant.connect()).append(": you are ").append(DISCS[0])
+                .append(", the computer is ").append(DISCS[1]));
+        print(out, position);
+
+        String result = null;
+
+        while (result == null)
+        {
+            out.print(new StringBuilder("Your move (1-").append(variant.columns()).append(", q to quit): "));
+            out.flush();
+
+            // Only once the game is on screen, not to compete with it for the CPU
+            if (!builder.isAlive() && !engineTask.isDone())
+                builder.start();
+
+            String line = in.readLine();
+
+            if (line == null || line.trim().equals("q"))
+                break;
+
+            int col;
+
+            try
+            {
+                col = Integer.parseInt(line.trim()) - 1;
+            }
+            catch (NumberFormatException e)
+            {
+                col = -1;
+            }
+
+            if (col < 0 || col >= variant.columns() || !position.canPlay(col))
+            {
+                out.println("Not a playable column");
+                continue;
+            }
+
+            position.play(col);
+            print(out, position);
+            result = outcome(position, col, "You win!");
+
+            if (result != null)
+                break;
+
+            int aiCol = engine(engineTask).aiMove(new Position(position));
+            position.play(aiCol);
+            out.println("The computer plays " + (aiCol + 1));
+            print(out, position);
+            result = outcome(position, aiCol, "The computer wins!");
+        }
+
+        if (result != null)
+            out.println(result);
+
+        if (engineTask.isDone())
+            engine(engineTask).shutdown();
+
+        record(variant, position);
+    }
+
+    private static Engine engine(FutureTask<Engine> engineTask) throws InterruptedException
+    {
+        try
+        {
+            return engineTask.get();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("Cannot set up the engine", e.getCause());
+        }
+    }
+
+    // The message for a game the move ended, or null if it goes on
+    private static String outcome(Position position, int col, String win)
+    {
+        if (position.wonWith(col))
+            return win;
+
+        return position.isFull() ? "Draw" : null;
+    }
+
+    // Row by row from the top, with the column numbers underneath
+    private static void print(PrintStream out, Position position)
+    {
+        Variant variant = position.variant();
+        StringBuilder text = new StringBuilder();
+
+        for (int row = variant.rows() - 1; row >= 0; row--)
+        {
+            for (int col = 0; col < variant.columns(); col++)
+            {
+                int owner = position.owner(row, col);
+                text.append(' ').append(owner == -1 ? '.' : DISCS[owner]);
+            }
+
+            text.append(System.lineSeparator());
+        }
+
+        for (int col = 0; col < variant.columns(); col++)
+            text.append(' ').append((col + 1) % 10);
+
+        out.println(text);
+    }
+
+    // Stores the game, as the windowed frontends do
+    private static void record(Variant variant, Position position) throws IOException
+    {
+        GameStore gameStore = GameStore.fromProperties(variant);
+
+        if (gameStore == null || position.moves() == 0)
+            return;
+
+        try (gameStore)
+        {
+            gameStore.append(position);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package application;
+
+// How long the engine may think: a fixed budget per move, or one budget for the whole game that
+// is shared out over the moves still to come. For each move it sets three deadlines. The search
+// starts no new iteration after the soft deadline. After the extended one it starts none even
+// when the position is unstable, meaning the last iteration changed the best move or dropped
+// its score. At the hard deadline it stops in the middle of an iteration and plays the best move
+// of the last complete one.
+//
+// Part of each budget is kept back from the hard deadline, for returning the move and for the
+// time the search thread may spend descheduled before it next reads the clock. When other
+// threads compete for the CPU that can take a whole scheduling period, so the margin learns
+// from how far past their hard deadline recent moves finished.
+//
+// A per-game budget is charged with the time each move took. Searches while pondering run on
+// the opponent's time and are not charged; when the engine's move is a pondered answer, only
+// the time spent waiting for it is.
+public final class TimeControl
+{
+    // The margin is at least an eighth of a move's budget, and at most half of it
+    private static final int MIN_MARGIN_DIVISOR = 8;
+    private static final int MAX_MARGIN_DIVISOR = 2;
+
+    // A per-game budget is shared out over at most this many moves, so the early moves, which
+    // decide the game, get more and the endgame solver's fast moves pay for them
+    private static final int HORIZON_MOVES = 15;
+
+    // A move may spend up to this many times its share of a per-game budget, and never more than
+    // half of what is left
+    private static final int MAX_SHARES = 3;
+
+    private final long moveNanos;
+    private final long gameNanos;
+    private long remainingNanos;
+
+    // The latest overrun past a hard deadline, decaying by a thirty-second per move, and the hard
+    // deadline of the move under way
+    private long overrunNanos;
+    private long hardDeadline;
+
+    private TimeControl(long moveNanos, long gameNanos)
+    {
+        this.moveNanos = moveNanos;
+        this.gameNanos = gameNanos;
+        remainingNanos = gameNanos;
+    }
+
+    public static TimeControl perMove(long millis)
+    {
+        return new TimeControl(millis * 1_000_000, 0);
+    }
+
+    public static TimeControl perGame(long millis)
+    {
+        return new TimeControl(0, millis * 1_000_000);
+    }
+
+    // Restores a per-game budget in full
+    public void newGame()
+    {
+        remainingNanos = gameNanos;
+    }
+
+    // Nanoseconds left of a per-game budget
+    public long remainingNanos()
+    {
+        return remainingNanos;
+    }
+
+    // Called as each move ends, at end (System.nanoTime), after start
+    void charge(long start, long end)
+    {
+        if (gameNanos > 0)
+            remainingNanos = Math.max(0, remainingNanos - (end - start));
+
+        overrunNanos = Math.max(end - hardDeadline, overrunNanos - overrunNanos / 32);
+    }
+
+    // Charges a per-game budget with time spent on a move without searching it, such as
+    // waiting for a pondered answer
+    void spend(long nanos)
+    {
+        if (gameNanos > 0)
+            remainingNanos = Math.max(0, remainingNanos - nanos);
+    }
+
+    // The soft, extended and hard deadlines (System.nanoTime) for the side to move in root,
+    // starting at start
+    long[] deadlines(Position root, long start)
+    {
+        long share;
+        long hard;
+
+        if (gameNanos == 0)
+        {
+            share = moveNanos;
+            hard = moveNanos;
+        }
+        else
+        {
+            int movesLeft = Math.min(HORIZON_MOVES, (root.variant().cells() - root.moves() + 1) / 2);
+            share = remainingNanos / Math.max(1, movesLeft);
+            hard = Math.min(MAX_SHARES * share, remainingNanos / 2);
+        }
+
+        hard -= Math.max(share / MIN_MARGIN_DIVISOR, Math.min(share / MAX_MARGIN_DIVISOR, overrunNanos));
+        hardDeadline = start + hard;
+
+        return new long[] { start + share / 2, start + Math.min(hard, share * 3 / 2), start + hard };
+    }
+}
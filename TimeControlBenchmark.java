@@ -0,0 +1,135 @@
+package application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Move latency under a time budget. An engine with a per-move or per-game budget and no depth
+// limit plays games against a fixed-depth opponent from random openings, and every one of its
+// moves is timed. Busy threads can be added to compete for the CPU, to see whether the budget
+// still holds when the engine gets only part of a core.
+//
+// Usage: TimeControlBenchmark [name=value ...]
+//   games=20 move=100 (milliseconds per move) game=0 (milliseconds per game, instead of per move)
+//   load=0 (busy threads) opponent=6 (opponent depth) opening=4 seed=1
+public class TimeControlBenchmark
+{
+    private static volatile long sink;
+
+    public static void main(String[] args)
+    {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args)
+        {
+            int eq = arg.indexOf('=');
+
+            if (eq < 0)
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        int games = Integer.parseInt(options.getOrDefault("games", "20"));
+        long moveMillis = Long.parseLong(options.getOrDefault("move", "100"));
+        long gameMillis = Long.parseLong(options.getOrDefault("game", "0"));
+        int load = Integer.parseInt(options.getOrDefault("load", "0"));
+        int opponentDepth = Integer.parseInt(options.getOrDefault("opponent", "6"));
+        int opening = Integer.parseInt(options.getOrDefault("opening", "4"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+        for (int i = 0; i < load; i++)
+        {
+            Thread busy = new Thread(TimeControlBenchmark::spin, "busy-" + i);
+            busy.setDaemon(true);
+            busy.start();
+        }
+
+        Engine engine = new Engine(Variant.STANDARD.cells(), true, new TranspositionTable(32));
+        engine.setSolver(new Solver(new TranspositionTable(32)), 22);
+        engine.setTimeControl(gameMillis > 0 ? TimeControl.perGame(gameMillis) : TimeControl.perMove(moveMillis));
+
+        Engine opponent = new Engine(opponentDepth, true, new TranspositionTable(8));
+        long[] latencies = new long[games * Variant.STANDARD.cells()];
+        long[] gameTotals = new long[games];
+        long depths = 0;
+        int count = 0;
+        int wins = 0, losses = 0;
+
+        System.out.printf("%d games against depth %d, %s, %d busy threads%n", games, opponentDepth,
+                gameMillis > 0 ? gameMillis + " ms per game" : moveMillis + " ms per move", load);
+
+        for (int game = 0; game < games; game++)
+        {
+            Position position = Tournament.randomOpening(new Random(seed * 1_000_003 + game / 2), opening);
+            int timed = game % 2 == 0 ? position.currentPlayer() : 1 - position.currentPlayer();
+
+            engine.newGame();
+            opponent.newGame();
+
+            while (!position.isFull())
+            {
+                int mover = position.currentPlayer();
+                int col;
+
+                if (mover == timed)
+                {
+                    long start = System.nanoTime();
+                    col = engine.aiMove(new Position(position));
+                    long nanos = System.nanoTime() - start;
+
+                    latencies[count++] = nanos;
+                    gameTotals[game] += nanos;
+                    depths += Math.max(0, engine.stats().depthReached());
+                }
+                else
+                    col = opponent.aiMove(new Position(position));
+
+                position.play(col);
+
+                if (position.wonWith(col))
+                {
+                    if (mover == timed)
+                        wins++;
+                    else
+                        losses++;
+
+                    break;
+                }
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long budget = gameMillis > 0 ? 0 : moveMillis * 1_000_000;
+        long over = budget == 0 ? 0 : Arrays.stream(sorted).filter(nanos -> nanos > budget).count();
+
+        System.out.printf("%d moves: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms, %d over the budget, mean depth %.1f%n",
+                count, sorted[count / 2] / 1e6, sorted[count * 9 / 10] / 1e6, sorted[count * 99 / 100] / 1e6,
+                sorted[count - 1] / 1e6, over, (double) depths / count);
+
+        if (gameMillis > 0)
+        {
+            Arrays.sort(gameTotals);
+            System.out.printf("Time per game: median %.0f ms, max %.0f ms of %d ms%n", gameTotals[games / 2] / 1e6,
+                    gameTotals[games - 1] / 1e6, gameMillis);
+        }
+
+        System.out.printf("Against depth %d: +%d =%d -%d%n", opponentDepth, wins, games - wins - losses, losses);
+        engine.shutdown();
+    }
+
+    private static void spin()
+    {
+        long x = 1;
+
+        while (true)
+        {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+
+            if (x == 0)
+                sink = x;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Headless engine-vs-engine matches for tuning. Games run concurrently on a bounded pool; each
+// worker thread owns one engine per side and keeps playing games until the match is complete.
+// Every random opening is played twice with the colors swapped, so neither side profits from a
+// lucky opening or from moving first.
+//
+// Usage: Tournament [name=value ...]
+//   games=1000 threads=<cores> seed=1 opening=4
+//   depthA=8 depthB=8 timeA=0 timeB=0 (milliseconds per move, 0 for depth only) ttA=8 ttB=8 (MB)
+//   solverA=22 solverB=22 (empty cells, 0 for none)
+//   mctsA=0 mctsB=0 (Monte Carlo rollouts per move instead of alpha-beta, 0 for alpha-beta; with
+//   a move time, any value above 0 searches by time; the tree then uses the table MB)
+//   evalA evalB (n-tuple network weight files from NTupleTrainer; the window score by default)
+public class Tournament
+{
+    private static final int WIN = 0, DRAW = 1, LOSS = 2;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args)
+        {
+            int eq = arg.indexOf('=');
+
+            if (eq < 0)
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        int games = option(options, "games", 1000);
+        int threads = option(options, "threads", Runtime.getRuntime().availableProcessors());
+        long seed = option(options, "seed", 1);
+        int opening = option(options, "opening", 4);
+
+        Side a = new Side(option(options, "depthA", 8), option(options, "timeA", 0), option(options, "ttA", 8),
+                option(options, "solverA", 22), option(options, "mctsA", 0), options.get("evalA"));
+        Side b = new Side(option(options, "depthB", 8), option(options, "timeB", 0), option(options, "ttB", 8),
+                option(options, "solverB", 22), option(options, "mctsB", 0), options.get("evalB"));
+
+        System.out.printf("A: %s%nB: %s%n%d games, %d threads, %d random opening plies%n", a, b, games, threads, opening);
+
+        // Results from A's point of view, and moves and nanoseconds spent choosing them per side
+        AtomicLongArray results = new AtomicLongArray(3);
+        AtomicLongArray moves = new AtomicLongArray(2);
+        AtomicLongArray nanos = new AtomicLongArray(2);
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        for (int t = 0; t < threads; t++)
+            pool.execute(() ->
+            {
+                Engine engineA = a.engine();
+                Engine engineB = b.engine();
+
+                for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement())
+                {
+                    // Games 2k and 2k + 1 share an opening; A moves first in the even one
+                    Position position = randomOpening(new Random(seed * 1_000_003 + game / 2), opening);
+                    boolean aFirst = game % 2 == 0;
+                    long[] time = new long[4];
+                    int result = play(position, aFirst ? engineA : engineB, aFirst ? engineB : engineA, time);
+                    int a0 = aFirst ? 0 : 2;
+
+                    moves.addAndGet(0, time[a0]);
+                    nanos.addAndGet(0, time[a0 + 1]);
+                    moves.addAndGet(1, time[2 - a0]);
+                    nanos.addAndGet(1, time[3 - a0]);
+
+                    results.incrementAndGet(result == DRAW ? DRAW : (result == WIN) == aFirst ? WIN : LOSS);
+                    int done = (int) (results.get(WIN) + results.get(DRAW) + results.get(LOSS));
+
+                    if (done % 100 == 0)
+                        System.out.printf("%,d games%n", done);
+                }
+
+                engineA.shutdown();
+                engineB.shutdown();
+            });
+
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(results.get(WIN), results.get(DRAW), results.get(LOSS), seconds);
+        System.out.printf("Time per move: A %.2f ms, B %.2f ms%n", nanos.get(0) / 1e6 / Math.max(1, moves.get(0)),
+                nanos.get(1) / 1e6 / Math.max(1, moves.get(1)));
+    }
+
+    // Plays from the opening until the game ends; returns WIN, DRAW or LOSS for first, the engine
+    // to move after the opening. Adds the moves and nanoseconds of first, then of second, to time.
+    static int play(Position position, Engine first, Engine second, long[] time)
+    {
+        int firstPlayer = position.currentPlayer();
+
+        first.newGame();
+        second.newGame();
+
+        while (!position.isFull())
+        {
+            Engine engine = position.currentPlayer() == firstPlayer ? first : second;
+            int side = engine == first ? 0 : 2;
+            long start = System.nanoTime();
+            int col = engine.aiMove(new Position(position));
+            int player = position.currentPlayer();
+
+            time[side]++;
+            time[side + 1] += System.nanoTime() - start;
+
+            position.play(col);
+
+            if (position.wonWith(col))
+                return player == firstPlayer ? WIN : LOSS;
+        }
+
+        return DRAW;
+    }
+
+    // Random moves that neither win nor leave an immediate win for the next player
+    static Position randomOpening(Random random, int plies)
+    {
+        while (true)
+        {
+            Position position = new Position();
+
+            while (position.moves() < plies)
+            {
+                int col = random.nextInt(position.columns());
+
+                if (position.canPlay(col) && !position.isWinningMove(col))
+                    position.play(col);
+            }
+
+            boolean threat = false;
+
+            for (int col = 0; col < position.columns(); col++)
+                threat |= position.canPlay(col) && position.isWinningMove(col);
+
+            if (!threat)
+                return position;
+        }
+    }
+
+    // Elo difference with a 95% confidence interval from the per-game score variance
+    static void report(long wins, long draws, long losses, double seconds)
+    {
+        long n = wins + draws + losses;
+        double score = (wins + 0.5 * draws) / n;
+        double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+                + losses * Math.pow(score, 2)) / n;
+        double margin = 1.96 * Math.sqrt(variance / n);
+
+        System.out.printf("A vs B: +%d =%d -%d (%.1f%%)%n", wins, draws, losses, 100 * score);
+        System.out.printf("Elo difference: %s (95%% interval %s to %s)%n", elo(score), elo(score - margin), elo(score + margin));
+        System.out.printf("%,d games in %.1f s, %.1f games/s%n", n, seconds, n / seconds);
+    }
+
+    private static String elo(double score)
+    {
+        if (score <= 0)
+            return "-inf";
+
+        if (score >= 1)
+            return "+inf";
+
+        return String.format("%+.1f", -400 * Math.log10(1 / score - 1));
+    }
+
+    private static int option(Map<String, String> options, String name, int defaultValue)
+    {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    // How one side of the match searches
+    private static class Side
+    {
+        final int depth;
+        final int moveTime;
+        final int megabytes;
+        final int solverEmptyCells;
+        final int iterations;
+        final String weights;
+        final Evaluator evaluator;
+
+        Side(int depth, int moveTime, int megabytes, int solverEmptyCells, int iterations, String weights)
+        {
+            this.depth = depth;
+            this.moveTime = moveTime;
+            this.megabytes = megabytes;
+            this.solverEmptyCells = solverEmptyCells;
+            this.iterations = iterations;
+            this.weights = weights;
+
+            // Loaded once; a network is read-only while searching, so the threads share it
+            try
+            {
+                evaluator = weights == null ? Evaluator.WINDOWS : NTupleNetwork.load(Path.of(weights));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Cannot load n-tuple network " + weights, e);
+            }
+        }
+
+        Engine engine()
+        {
+            // With a move time the depth only caps the iterative deepening
+            Engine engine = new Engine(moveTime > 0 ? Variant.STANDARD.cells() : depth, true,
+                    iterations > 0 ? null : new TranspositionTable(megabytes));
+
+            engine.setMoveTime(moveTime);
+            engine.setEvaluator(evaluator);
+
+            // One search thread per side, as the games themselves run in parallel
+            if (iterations > 0)
+                engine.setMonteCarlo(new MonteCarlo(moveTime > 0 ? Integer.MAX_VALUE : iterations, 1, megabytes));
+
+            if (solverEmptyCells > 0)
+                engine.setSolver(new Solver(new TranspositionTable(megabytes)), solverEmptyCells);
+
+            return engine;
+        }
+
+        @Override
+        public String toString()
+        {
+            String budget = moveTime > 0 ? moveTime + " ms/move" : iterations > 0 ? iterations + " rollouts" : "depth " + depth;
+
+            return (iterations > 0 ? "Monte Carlo, " : "") + budget + ", " + megabytes + " MB "
+                    + (iterations > 0 ? "tree" : "table")
+                    + (solverEmptyCells > 0 ? ", solver at " + solverEmptyCells + " empty cells" : "")
+                    + (weights != null ? ", n-tuple network " + weights : "");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package application;
+
+import java.util.Arrays;
+
+// Fixed-size transposition table held in two preallocated long arrays. Each entry packs score,
+// depth, bound, best move and generation into one word; the key slot stores key ^ data so a
+// torn write from another thread is detected instead of returned.
+public class TranspositionTable
+{
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    public static final int NO_MOVE = 15;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int shift;
+
+    private int generation;
+
+    public TranspositionTable(int megabytes)
+    {
+        long wanted = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int bits = Math.min(30, 63 - Long.numberOfLeadingZeros(wanted));
+
+        keys = new long[1 << bits];
+        entries = new long[1 << bits];
+        shift = 64 - bits;
+    }
+
+    // Called once per aiMove; entries from older searches become preferred victims for replacement
+    public void newSearch()
+    {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+    }
+
+    // Returns the packed entry for the key, or 0 if there is none
+    public long probe(long key)
+    {
+        int index = index(key);
+        long data = entries[index];
+
+        if (data == 0 || (keys[index] ^ data) != key)
+            return 0;
+
+        return data;
+    }
+
+    // Depth-preferred replacement; anything stored by an earlier search may always be replaced
+    public void store(long key, int score, int depth, int bound, int move)
+    {
+        int index = index(key);
+        long old = entries[index];
+
+        if (old != 0 && generation(old) == generation && depth(old) > depth && (keys[index] ^ old) != key)
+            return;
+
+        long data = (score & 0xFFFFFFFFL)
+                  | (long) depth << 32
+                  | (long) bound << 40
+                  | (long) move << 42
+                  | (long) generation << 46;
+
+        entries[index] = data;
+        keys[index] = key ^ data;
+    }
+
+    public static int score(long entry)
+    {
+        return (int) entry;
+    }
+
+    public static int depth(long entry)
+    {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    public static int bound(long entry)
+    {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    public static int move(long entry)
+    {
+        return (int) (entry >>> 42) & 0xF;
+    }
+
+    private static int generation(long entry)
+    {
+        return (int) (entry >>> 46) & 0xFF;
+    }
+
+    private int index(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    public int capacity()
+    {
+        return entries.length;
+    }
+}
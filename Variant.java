@@ -0,0 +1,196 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Board dimensions and the number of stones in a row that wins, with the line tables that
+// Position derives from them. Instances are immutable and shared by every position of a game.
+public final class Variant
+{
+    // The transposition table packs the move into four bits and the depth into eight
+    private static final int MAX_COLUMNS = 15;
+    private static final int MAX_CELLS = 255;
+
+    private static final int WIN_SCORE = 10_000;
+    private static final int[] NEAR_WIN_SCORES = { 50, 5 };
+
+    // Declared after the constants the constructor reads
+    public static final Variant STANDARD = new Variant(6, 7, 4);
+
+    private final int rows;
+    private final int columns;
+    private final int connect;
+
+    // Each column uses rows + 1 bits; the spare top bit keeps shifts from wrapping into the next
+    // column. A variant is compact when all columns fit in one long.
+    final int columnBits;
+    final int words;
+    final boolean compact;
+    final int[] shifts;
+
+    // Every window of connect cells that can hold a win, and for each cell the windows that
+    // pass through it
+    final int windowCount;
+    final int[][] cellWindows;
+
+    // A window's state packs player 0's stone count plus player 1's times stateStep[1];
+    // scoreDelta[player][state] is the change in player 0's score when player adds a stone
+    final int[] stateStep;
+    final int[][] scoreDelta;
+
+    final int[] columnOrder;
+    final long[] zobrist;
+
+    public Variant(int rows, int columns, int connect)
+    {
+        if (rows < 1 || columns < 1 || columns > MAX_COLUMNS || rows * columns > MAX_CELLS)
+            throw new IllegalArgumentException("Unsupported board " + columns + "x" + rows + ": at most "
+                    + MAX_COLUMNS + " columns and " + MAX_CELLS + " cells");
+
+        if (connect < 2 || connect > Math.max(rows, columns))
+            throw new IllegalArgumentException("Cannot connect " + connect + " on a " + columns + "x" + rows + " board");
+
+        this.rows = rows;
+        this.columns = columns;
+        this.connect = connect;
+
+        columnBits = rows + 1;
+        words = (columns * columnBits + 63) >>> 6;
+        compact = words == 1;
+        shifts = new int[] { 1, columnBits, columnBits + 1, columnBits - 1 };
+
+        List<int[]> windows = new ArrayList<>();
+        int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+
+        for (int[] d : directions)
+            for (int col = 0; col < columns; col++)
+                for (int row = 0; row < rows; row++)
+                {
+                    int lastCol = col + (connect - 1) * d[0];
+                    int lastRow = row + (connect - 1) * d[1];
+
+                    if (lastCol >= columns || lastRow < 0 || lastRow >= rows)
+                        continue;
+
+                    int[] cells = new int[connect];
+
+                    for (int k = 0; k < connect; k++)
+                        cells[k] = (col + k * d[0]) * columnBits + row + k * d[1];
+
+                    windows.add(cells);
+                }
+
+        windowCount = windows.size();
+        int[] perCell = new int[columns * columnBits];
+
+        for (int[] window : windows)
+            for (int cell : window)
+                perCell[cell]++;
+
+        cellWindows = new int[columns * columnBits][];
+
+        for (int cell = 0; cell < cellWindows.length; cell++)
+            cellWindows[cell] = new int[perCell[cell]];
+
+        int[] filled = new int[columns * columnBits];
+
+        for (int w = 0; w < windowCount; w++)
+            for (int cell : windows.get(w))
+                cellWindows[cell][filled[cell]++] = w;
+
+        int base = connect + 1;
+        stateStep = new int[] { 1, base };
+        scoreDelta = new int[2][base * base];
+
+        // A full window wins; open windows one and two stones short score 50 and 5 as three and
+        // two of four always have, and any fewer stones one point
+        int[] stoneScore = new int[connect + 1];
+
+        for (int stones = 1; stones <= connect; stones++)
+        {
+            int missing = connect - stones;
+            stoneScore[stones] = missing == 0 ? WIN_SCORE : missing <= NEAR_WIN_SCORES.length ? NEAR_WIN_SCORES[missing - 1] : 1;
+        }
+
+        int[] windowScore = new int[base * base];
+
+        // A window holding stones of both players can never be won by either
+        for (int mine = 0; mine <= connect; mine++)
+            for (int theirs = 0; theirs <= connect; theirs++)
+                if (mine == 0 || theirs == 0)
+                    windowScore[mine + base * theirs] = stoneScore[mine] - stoneScore[theirs];
+
+        for (int player = 0; player < 2; player++)
+            for (int state = 0; state + stateStep[player] < base * base; state++)
+                scoreDelta[player][state] = windowScore[state + stateStep[player]] - windowScore[state];
+
+        // Columns from the center outward; central columns take part in the most lines
+        columnOrder = new int[columns];
+
+        for (int i = 0; i < columns; i++)
+            columnOrder[i] = columns / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+
+        // Fixed seed so keys of boards too large for an exact key are the same in every run
+        SplittableRandom random = new SplittableRandom(31L * (31L * rows + columns) + connect);
+        zobrist = new long[2 * columns * columnBits];
+
+        for (int i = 0; i < zobrist.length; i++)
+            zobrist[i] = random.nextLong();
+    }
+
+    // -Dconnect4.rows, -Dconnect4.columns and -Dconnect4.connect, defaulting to the standard game
+    public static Variant fromProperties()
+    {
+        int rows = Integer.getInteger("connect4.rows", STANDARD.rows);
+        int columns = Integer.getInteger("connect4.columns", STANDARD.columns);
+        int connect = Integer.getInteger("connect4.connect", STANDARD.connect);
+
+        return rows == STANDARD.rows && columns == STANDARD.columns && connect == STANDARD.connect ? STANDARD
+                : new Variant(rows, columns, connect);
+    }
+
+    public int rows()
+    {
+        return rows;
+    }
+
+    public int columns()
+    {
+        return columns;
+    }
+
+    public int connect()
+    {
+        return connect;
+    }
+
+    public int cells()
+    {
+        return rows * columns;
+    }
+
+    // Center-first order in which the engines try columns
+    public int[] columnOrder()
+    {
+        return columnOrder.clone();
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof Variant v && v.rows == rows && v.columns == columns && v.connect == connect;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (rows * 31 + columns) * 31 + connect;
+    }
+
+    @Override
+    public String toString()
+    {
+        return columns + "x" + rows + " connect " + connect;
+    }
+}
@@ -0,0 +1,60 @@
+package application.benchmarks;
+
+import application.Engine;
+import application.Position;
+import application.TranspositionTable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Full aiMove at fixed depths over the corpus, single-threaded alpha-beta with a transposition
+// table that is cleared before every invocation so each move starts cold
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AiMoveBenchmark
+{
+    @Param({ "4", "8", "12" })
+    public int depth;
+
+    private Position[] positions;
+    private TranspositionTable table;
+    private Engine engine;
+
+    @Setup
+    public void setUp()
+    {
+        positions = Corpus.positions();
+        table = new TranspositionTable(16);
+        engine = new Engine(depth, true, table);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable()
+    {
+        table.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void aiMove(Blackhole blackhole)
+    {
+        for (Position position : positions)
+            blackhole.consume(engine.aiMove(position));
+    }
+}
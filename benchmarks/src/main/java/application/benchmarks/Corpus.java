@@ -0,0 +1,37 @@
+package application.benchmarks;
+
+import application.Position;
+
+// Fixed positions shared by all benchmarks, from the empty board to late middlegame, written as
+// 1-based column strings. Changing them invalidates comparisons with earlier results.
+final class Corpus
+{
+    // Compile-time copy of MOVES.length for @OperationsPerInvocation
+    static final int SIZE = 8;
+
+    static final String[] MOVES =
+    {
+        "",
+        "6154",
+        "37154234",
+        "331232212533",
+        "6253474544552224",
+        "35463646612233442234",
+        "142144422655223455256745",
+        "6361444457554553114511177777",
+    };
+
+    private Corpus()
+    {
+    }
+
+    static Position[] positions()
+    {
+        Position[] positions = new Position[MOVES.length];
+
+        for (int i = 0; i < MOVES.length; i++)
+            positions[i] = Position.fromMoves(MOVES[i]);
+
+        return positions;
+    }
+}
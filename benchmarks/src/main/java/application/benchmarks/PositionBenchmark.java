@@ -0,0 +1,87 @@
+package application.benchmarks;
+
+import application.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Per-node costs of the search: make/undo, win checks and leaf evaluation, each measured over
+// every column of every corpus position
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark
+{
+    // The corpus is on the standard board; a literal so that it is a compile-time constant
+    private static final int COLUMNS = 7;
+    private static final int OPERATIONS = Corpus.SIZE * COLUMNS;
+
+    private Position[] positions;
+
+    @Setup
+    public void setUp()
+    {
+        positions = Corpus.positions();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void makeUndo(Blackhole blackhole)
+    {
+        for (Position position : positions)
+            for (int col = 0; col < COLUMNS; col++)
+                if (position.canPlay(col))
+                {
+                    position.play(col);
+                    blackhole.consume(position.moves());
+                    position.undo(col);
+                }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void winCheckBeforeMove(Blackhole blackhole)
+    {
+        for (Position position : positions)
+            for (int col = 0; col < COLUMNS; col++)
+                if (position.canPlay(col))
+                    blackhole.consume(position.isWinningMove(col));
+    }
+
+    // Includes the make/undo around it, as in the search
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void winCheckAfterMove(Blackhole blackhole)
+    {
+        for (Position position : positions)
+            for (int col = 0; col < COLUMNS; col++)
+                if (position.canPlay(col))
+                {
+                    position.play(col);
+                    blackhole.consume(position.wonWith(col));
+                    position.undo(col);
+                }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void leafEvaluation(Blackhole blackhole)
+    {
+        for (Position position : positions)
+            for (int col = 0; col < COLUMNS; col++)
+                blackhole.consume(position.evaluate(col & 1));
+    }
+}
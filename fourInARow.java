@@ -1,17 +1,30 @@
 package application;
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import application.PVP;
 import javafx.scene.Scene;
 import application.AI;
 
 public class fourInARow {
-	public static void main(String[] args) {
-		// TODO Auto-generated method stub
-		Scanner input = new Scanner(System.in);
+	public static void main(String[] args) throws Exception {
+		// "text" plays against the computer in the terminal without starting JavaFX at all
+		if (args.length > 0 && args[0].equals("text")) {
+			TextGame.main(args);
+			return;
+		}
+		// Read by line, and handed on to the terminal game, so that no moves typed or piped
+		// after the choice are lost in a buffer the game never sees
+		BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
 		int user; 
-		System.out.print("Enter 1 to play against computer or 2 to play against another player:");
-		user = input.nextInt();
-		if (user == 1) {
+		System.out.print("Enter 1 to play against computer, 2 to play against another player or 3 to play against computer in this terminal:");
+		String choice = input.readLine();
+		if (choice == null) {
+			return;
+		}
+		user = Integer.parseInt(choice.trim());
+		if (user == 3) {
+			TextGame.play(input, System.out);
+		}else if (user == 1) {
 			AI newObj = new AI();
 			newObj.main(args);
 		}else {
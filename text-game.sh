@@ -0,0 +1,14 @@
+#!/bin/sh
+# Starts the terminal game from the jar that mvn package builds, with an application
+# class-data-sharing archive next to it. The first run records the classes it loads into the
+# archive as it exits; later runs map them straight from the archive instead of loading and
+# verifying them. Delete the archive after rebuilding the jar.
+dir=$(dirname "$0")/target
+jar=$dir/four-in-a-row-1.0-SNAPSHOT.jar
+archive=$dir/text-game.jsa
+
+if [ -f "$archive" ]; then
+    exec java -XX:SharedArchiveFile="$archive" -jar "$jar" text "$@"
+fi
+
+exec java -XX:ArchiveClassesAtExit="$archive" -jar "$jar" text "$@"